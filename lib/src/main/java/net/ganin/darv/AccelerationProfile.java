@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Acceleration profile of held navigation key. Maps time the key is held to step size in span
+ * groups per key repeat. After optional threshold navigation switches to continuous scrolling
+ * with constant speed, which ends on item boundary when the key is released.
+ * <p>
+ * Hold time is taken from {@link android.view.KeyEvent#getEventTime()} and
+ * {@link android.view.KeyEvent#getDownTime()}, so profile doesn't depend on key repeat rate.
+ *
+ * @see DpadAwareRecyclerView#setAccelerationProfile(AccelerationProfile)
+ */
+public class AccelerationProfile {
+
+    private static final long NO_CONTINUOUS = Long.MAX_VALUE;
+
+    private long[] mHoldTimes = new long[0];
+    private int[] mSteps = new int[0];
+
+    private long mContinuousHoldTime = NO_CONTINUOUS;
+    private float mContinuousSpeed;
+
+    /**
+     * Creates profile which doubles step every second and switches to continuous scrolling
+     * with 20 span groups per second after three seconds.
+     *
+     * @return new profile
+     */
+    @NonNull
+    public static AccelerationProfile createDefault() {
+        return new AccelerationProfile()
+                .addStep(1000, 2)
+                .addStep(2000, 4)
+                .setContinuous(3000, 20f);
+    }
+
+    /**
+     * Makes each key repeat move selection by number of span groups from given hold time on.
+     * Steps must be added in ascending order of hold time.
+     *
+     * @param holdTimeMs hold time in ms
+     * @param groups     step in span groups, at least 1
+     * @return this profile
+     */
+    @NonNull
+    public AccelerationProfile addStep(long holdTimeMs, int groups) {
+        int size = mHoldTimes.length;
+        if (size > 0 && holdTimeMs <= mHoldTimes[size - 1]) {
+            throw new IllegalArgumentException("Hold times must be ascending");
+        }
+
+        if (groups < 1) {
+            throw new IllegalArgumentException("Step must be at least one span group");
+        }
+
+        mHoldTimes = Arrays.copyOf(mHoldTimes, size + 1);
+        mSteps = Arrays.copyOf(mSteps, size + 1);
+        mHoldTimes[size] = holdTimeMs;
+        mSteps[size] = groups;
+        return this;
+    }
+
+    /**
+     * Makes navigation switch to continuous scrolling from given hold time on.
+     *
+     * @param holdTimeMs      hold time in ms
+     * @param groupsPerSecond scrolling speed in span groups per second
+     * @return this profile
+     */
+    @NonNull
+    public AccelerationProfile setContinuous(long holdTimeMs, float groupsPerSecond) {
+        if (groupsPerSecond <= 0f) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+
+        mContinuousHoldTime = holdTimeMs;
+        mContinuousSpeed = groupsPerSecond;
+        return this;
+    }
+
+    /**
+     * @param holdTimeMs hold time in ms
+     * @return step in span groups, 1 if key isn't held long enough for acceleration
+     */
+    public int getStepGroups(long holdTimeMs) {
+        int step = 1;
+        for (int i = 0; i < mHoldTimes.length && holdTimeMs >= mHoldTimes[i]; i++) {
+            step = mSteps[i];
+        }
+
+        return step;
+    }
+
+    /**
+     * @param holdTimeMs hold time in ms
+     * @return true if navigation should scroll continuously
+     */
+    public boolean isContinuous(long holdTimeMs) {
+        return holdTimeMs >= mContinuousHoldTime;
+    }
+
+    /**
+     * @return continuous scrolling speed in span groups per second
+     */
+    public float getContinuousSpeed() {
+        return mContinuousSpeed;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+
+/**
+ * {@link RecyclerView.RecycledViewPool} which holds the same number of views for every view type
+ * and counts how often view request is served from the pool and how often it ends up in
+ * inflation.
+ * <p>
+ * Size is usually set by {@link ExtGridLayoutManager} from grid geometry, see
+ * {@link ExtGridLayoutManager#setAdaptiveRecycling(boolean)}, which installs this pool only in
+ * place of default pool of list. Pool set by app is used only if it is adaptive. Sizes set
+ * explicitly with {@link #setMaxRecycledViews(int, int)} act as lower bounds.
+ */
+public class AdaptiveRecycledViewPool extends RecyclerView.RecycledViewPool {
+
+    /**
+     * Listener of views put into pool, i.e. views which will be rebound before reuse.
+     */
+    interface OnViewPooledListener {
+        void onViewPooled(@NonNull RecyclerView.ViewHolder holder);
+    }
+
+    /**
+     * Default maximum of scrapped views per type in {@link RecyclerView.RecycledViewPool}.
+     */
+    static final int DEFAULT_MAX_SCRAP = 5;
+
+    /**
+     * Known view types mapped to their explicitly set sizes, 0 if size wasn't set.
+     */
+    private final SparseIntArray mExplicitSizes = new SparseIntArray();
+    private int mSize = DEFAULT_MAX_SCRAP;
+
+    private long mHitCount = 0;
+    private long mMissCount = 0;
+
+    private final ArrayList<OnViewPooledListener> mListeners = new ArrayList<>();
+
+    /**
+     * Sets number of views held for every view type.
+     *
+     * @param size number of views per view type
+     */
+    public void setSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Pool size must be >= 0");
+        }
+
+        if (mSize == size) {
+            return;
+        }
+
+        mSize = size;
+        for (int i = 0; i < mExplicitSizes.size(); i++) {
+            applySize(mExplicitSizes.keyAt(i));
+        }
+    }
+
+    /**
+     * @return number of views held for every view type
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        mExplicitSizes.put(viewType, max);
+        applySize(viewType);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        ensureViewType(viewType);
+
+        RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        if (holder != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        ensureViewType(scrap.getItemViewType());
+        super.putRecycledView(scrap);
+
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onViewPooled(scrap);
+        }
+    }
+
+    void addOnViewPooledListener(@NonNull OnViewPooledListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    void removeOnViewPooledListener(@NonNull OnViewPooledListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @return number of view requests served with recycled view
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return number of view requests which found no recycled view, so view was inflated
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return fraction of view requests served with recycled view, 0 if there were no requests
+     */
+    public float getHitRate() {
+        long total = mHitCount + mMissCount;
+        return total > 0 ? (float) mHitCount / total : 0f;
+    }
+
+    /**
+     * Resets hit and miss counters.
+     */
+    public void resetCounters() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    private void ensureViewType(int viewType) {
+        if (mExplicitSizes.indexOfKey(viewType) < 0) {
+            mExplicitSizes.put(viewType, 0);
+            applySize(viewType);
+        }
+    }
+
+    private void applySize(int viewType) {
+        super.setMaxRecycledViews(viewType, Math.max(mSize, mExplicitSizes.get(viewType)));
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.FloatRange;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Horizontal carousel layout manager. Focused item is always centered, its neighbors are scaled
+ * and faded by distance from center. Items are expected to be of the same width.
+ * <p>
+ * Distance effects are applied through render properties while laying out and scrolling, only to
+ * children whose distance from center changed, without any allocation per frame. With looping
+ * enabled item after the last one is the first one, and navigation never ends.
+ * <p>
+ * Effects use scale and alpha of item views, so they shouldn't be combined with
+ * {@link DpadAwareRecyclerView#setFocusHighlight(FocusHighlight)}.
+ */
+public class CarouselLayoutManager extends RecyclerView.LayoutManager {
+
+    private static final String STATE_POSITION = "carousel_position";
+
+    private static final float DEFAULT_NEIGHBOR_SCALE = 0.8f;
+    private static final float DEFAULT_NEIGHBOR_ALPHA = 0.6f;
+
+    /**
+     * Layout params of carousel children.
+     */
+    public static class LayoutParams extends RecyclerView.LayoutParams {
+
+        /**
+         * Index of item in endless sequence of looped items. Equals to adapter position if
+         * looping is disabled.
+         */
+        int mVirtualIndex;
+        /**
+         * Effect level which was applied to item view last time.
+         */
+        float mAppliedLevel = Float.NaN;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(RecyclerView.LayoutParams source) {
+            super(source);
+        }
+    }
+
+    private boolean mLooping = false;
+    private float mNeighborScale = DEFAULT_NEIGHBOR_SCALE;
+    private float mNeighborAlpha = DEFAULT_NEIGHBOR_ALPHA;
+
+    /**
+     * Distance between centers of adjacent items. Zero if not measured yet.
+     */
+    private int mPitch;
+    /**
+     * Scroll position: virtual index of centered item multiplied by pitch. It is between items
+     * while carousel is being scrolled.
+     */
+    private int mScrollOffset;
+    private int mPendingPosition = RecyclerView.NO_POSITION;
+
+    @Nullable
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Item animator resets alpha and scale of animated children when it is done.
+     */
+    private final RecyclerView.ItemAnimator.ItemAnimatorFinishedListener mAnimationsListener =
+            new RecyclerView.ItemAnimator.ItemAnimatorFinishedListener() {
+                @Override
+                public void onAnimationsFinished() {
+                    invalidateEffects();
+                }
+            };
+
+    public CarouselLayoutManager() {
+    }
+
+    public CarouselLayoutManager(boolean looping) {
+        mLooping = looping;
+    }
+
+    /**
+     * Makes item after the last one be the first one and vice versa.
+     *
+     * @param looping true to enable looping
+     */
+    public void setLooping(boolean looping) {
+        if (mLooping != looping) {
+            int position = getCenteredPosition();
+            mLooping = looping;
+
+            if (position != RecyclerView.NO_POSITION) {
+                scrollToPosition(position);
+            }
+        }
+    }
+
+    public boolean isLooping() {
+        return mLooping;
+    }
+
+    /**
+     * Sets scale of items which are one item width or more away from center.
+     *
+     * @param neighborScale scale of neighbors, 1 for no scaling
+     */
+    public void setNeighborScale(float neighborScale) {
+        if (neighborScale <= 0f) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+
+        mNeighborScale = neighborScale;
+        invalidateEffects();
+    }
+
+    public float getNeighborScale() {
+        return mNeighborScale;
+    }
+
+    /**
+     * Sets alpha of items which are one item width or more away from center.
+     *
+     * @param neighborAlpha alpha of neighbors, 1 for no fading
+     */
+    public void setNeighborAlpha(@FloatRange(from = 0.0, to = 1.0) float neighborAlpha) {
+        if (neighborAlpha < 0f || neighborAlpha > 1f) {
+            throw new IllegalArgumentException("Alpha must be in range [0; 1]");
+        }
+
+        mNeighborAlpha = neighborAlpha;
+        invalidateEffects();
+    }
+
+    public float getNeighborAlpha() {
+        return mNeighborAlpha;
+    }
+
+    /**
+     * @return adapter position of centered item or {@link RecyclerView#NO_POSITION}
+     */
+    public int getCenteredPosition() {
+        int itemCount = getItemCount();
+        if (itemCount == 0 || mPitch == 0) {
+            return mPendingPosition;
+        }
+
+        return toPosition(Math.round((float) mScrollOffset / mPitch), itemCount);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public boolean checkLayoutParams(RecyclerView.LayoutParams lp) {
+        return lp instanceof LayoutParams;
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(Context c, AttributeSet attrs) {
+        return new LayoutParams(c, attrs);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(ViewGroup.LayoutParams lp) {
+        if (lp instanceof RecyclerView.LayoutParams) {
+            return new LayoutParams((RecyclerView.LayoutParams) lp);
+        } else if (lp instanceof ViewGroup.MarginLayoutParams) {
+            return new LayoutParams((ViewGroup.MarginLayoutParams) lp);
+        } else {
+            return new LayoutParams(lp);
+        }
+    }
+
+    @Override
+    public boolean canScrollHorizontally() {
+        return true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        int itemCount = getItemCount();
+        if (itemCount == 0) {
+            removeAndRecycleAllViews(recycler);
+            return;
+        }
+
+        // Offset between items is kept, so that layout during scroll doesn't snap carousel
+        float centerFraction = mPitch > 0 ? (float) mScrollOffset / mPitch : 0f;
+        boolean snap = mPendingPosition != RecyclerView.NO_POSITION;
+
+        int centerIndex = Math.round(centerFraction);
+        if (snap) {
+            centerIndex = toVirtualIndex(Math.min(mPendingPosition, itemCount - 1), centerIndex,
+                    itemCount);
+            mPendingPosition = RecyclerView.NO_POSITION;
+        } else if (!mLooping && centerIndex > itemCount - 1) {
+            // Items were removed from the end
+            centerIndex = itemCount - 1;
+            centerFraction = centerIndex;
+        }
+
+        detachAndScrapAttachedViews(recycler);
+
+        // Centered item is laid out first, it tells the pitch
+        View center = recycler.getViewForPosition(toPosition(centerIndex, itemCount));
+        addView(center);
+        measureChildWithMargins(center, 0, 0);
+
+        LayoutParams lp = (LayoutParams) center.getLayoutParams();
+        mPitch = getDecoratedMeasuredWidth(center) + lp.leftMargin + lp.rightMargin;
+        mScrollOffset = snap ? centerIndex * mPitch : Math.round(centerFraction * mPitch);
+        layoutItem(center, centerIndex);
+
+        fill(recycler);
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+
+        // Views may come from scrap or item animations with their render properties reset
+        invalidateEffects();
+
+        RecyclerView rv = mRecyclerView;
+        RecyclerView.ItemAnimator animator = rv != null ? rv.getItemAnimator() : null;
+        if (animator != null) {
+            animator.isRunning(mAnimationsListener);
+        }
+    }
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        mRecyclerView = view;
+    }
+
+    @Override
+    public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        super.onDetachedFromWindow(view, recycler);
+        mRecyclerView = null;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler,
+            RecyclerView.State state) {
+        int itemCount = getItemCount();
+        if (getChildCount() == 0 || itemCount == 0 || mPitch == 0) {
+            return 0;
+        }
+
+        if (!mLooping) {
+            int maxOffset = (itemCount - 1) * mPitch;
+            dx = Math.max(-mScrollOffset, Math.min(dx, maxOffset - mScrollOffset));
+        }
+
+        mScrollOffset += dx;
+        offsetChildrenHorizontal(-dx);
+        fill(recycler);
+        return dx;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        mPendingPosition = position;
+        requestLayout();
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state,
+            int position) {
+        int itemCount = getItemCount();
+        if (itemCount == 0 || mPitch == 0) {
+            scrollToPosition(position);
+            return;
+        }
+
+        int centerIndex = Math.round((float) mScrollOffset / mPitch);
+        int index = toVirtualIndex(position, centerIndex, itemCount);
+        recyclerView.smoothScrollBy(index * mPitch - mScrollOffset, 0);
+    }
+
+    @Override
+    public boolean requestChildRectangleOnScreen(RecyclerView parent, View child, Rect rect,
+            boolean immediate) {
+        int dx = (getDecoratedLeft(child) + getDecoratedRight(child)) / 2 - getCenterX();
+        if (dx == 0) {
+            return false;
+        }
+
+        if (immediate) {
+            parent.scrollBy(dx, 0);
+        } else {
+            parent.smoothScrollBy(dx, 0);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        shiftCenter(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        shiftCenter(positionStart, -itemCount);
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        Bundle state = new Bundle();
+        state.putInt(STATE_POSITION, getCenteredPosition());
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof Bundle) {
+            mPendingPosition = ((Bundle) state).getInt(STATE_POSITION, RecyclerView.NO_POSITION);
+            requestLayout();
+        }
+    }
+
+    /**
+     * Keeps centered item in center when items are added or removed before it.
+     */
+    private void shiftCenter(int positionStart, int delta) {
+        int oldItemCount = getItemCount() - delta;
+        if (mPitch == 0 || oldItemCount <= 0 || mPendingPosition != RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int centerIndex = Math.round((float) mScrollOffset / mPitch);
+        int centerPosition = toPosition(centerIndex, oldItemCount);
+        if (positionStart <= centerPosition) {
+            mPendingPosition = Math.max(0, centerPosition + delta);
+        }
+    }
+
+    /**
+     * Recycles children which went out of viewport, adds ones which came into it and applies
+     * distance effects. One item beyond viewport is kept on each side, so focus search always
+     * finds neighbors of centered item.
+     */
+    private void fill(RecyclerView.Recycler recycler) {
+        int itemCount = getItemCount();
+        normalizeScrollOffset(itemCount);
+
+        int centerX = getCenterX();
+        int first = floorDiv(mScrollOffset - (centerX - getPaddingLeft()), mPitch) - 1;
+        int last = floorDiv(mScrollOffset + (getWidth() - getPaddingRight() - centerX), mPitch)
+                + 1;
+
+        if (!mLooping) {
+            first = Math.max(first, 0);
+            last = Math.min(last, itemCount - 1);
+        } else if (last - first + 1 > itemCount) {
+            // Every adapter position can be laid out only once
+            first = Math.round((float) mScrollOffset / mPitch) - (itemCount - 1) / 2;
+            last = first + itemCount - 1;
+        }
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            int index = ((LayoutParams) getChildAt(i).getLayoutParams()).mVirtualIndex;
+            if (index < first || index > last) {
+                removeAndRecycleViewAt(i, recycler);
+            }
+        }
+
+        if (getChildCount() == 0) {
+            for (int index = first; index <= last; index++) {
+                addItem(recycler, index, -1, itemCount);
+            }
+        } else {
+            // Children are kept in order of virtual indices
+            int childFirst = ((LayoutParams) getChildAt(0).getLayoutParams()).mVirtualIndex;
+            int childLast = ((LayoutParams) getChildAt(getChildCount() - 1).getLayoutParams())
+                    .mVirtualIndex;
+
+            for (int index = childFirst - 1; index >= first; index--) {
+                addItem(recycler, index, 0, itemCount);
+            }
+
+            for (int index = childLast + 1; index <= last; index++) {
+                addItem(recycler, index, -1, itemCount);
+            }
+        }
+
+        applyEffects();
+    }
+
+    private void addItem(RecyclerView.Recycler recycler, int index, int childIndex,
+            int itemCount) {
+        View view = recycler.getViewForPosition(toPosition(index, itemCount));
+        addView(view, childIndex);
+        measureChildWithMargins(view, 0, 0);
+        layoutItem(view, index);
+    }
+
+    private void layoutItem(View view, int index) {
+        LayoutParams lp = (LayoutParams) view.getLayoutParams();
+        lp.mVirtualIndex = index;
+        lp.mAppliedLevel = Float.NaN;
+
+        int width = getDecoratedMeasuredWidth(view) + lp.leftMargin + lp.rightMargin;
+        int height = getDecoratedMeasuredHeight(view) + lp.topMargin + lp.bottomMargin;
+        int left = getCenterX() + index * mPitch - mScrollOffset - width / 2;
+        int top = getPaddingTop()
+                + (getHeight() - getPaddingTop() - getPaddingBottom() - height) / 2;
+
+        layoutDecoratedWithMargins(view, left, top, left + width, top + height);
+    }
+
+    /**
+     * Applies distance effects to children whose distance from center changed.
+     */
+    private void applyEffects() {
+        int centerX = getCenterX();
+
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+            int childCenterX = (getDecoratedLeft(child) + getDecoratedRight(child)) / 2;
+            float distance = (float) Math.abs(childCenterX - centerX) / mPitch;
+            float level = Math.max(0f, 1f - distance);
+
+            if (level != lp.mAppliedLevel) {
+                lp.mAppliedLevel = level;
+
+                float scale = mNeighborScale + (1f - mNeighborScale) * level;
+                child.setScaleX(scale);
+                child.setScaleY(scale);
+                child.setAlpha(mNeighborAlpha + (1f - mNeighborAlpha) * level);
+            }
+        }
+    }
+
+    private void invalidateEffects() {
+        for (int i = 0; i < getChildCount(); i++) {
+            ((LayoutParams) getChildAt(i).getLayoutParams()).mAppliedLevel = Float.NaN;
+        }
+
+        if (mPitch > 0) {
+            applyEffects();
+        }
+    }
+
+    /**
+     * Keeps scroll offset of looped carousel within one loop, so that it never overflows.
+     */
+    private void normalizeScrollOffset(int itemCount) {
+        if (!mLooping) {
+            return;
+        }
+
+        int loop = itemCount * mPitch;
+        int loops = floorDiv(mScrollOffset, loop);
+        if (loops == 0) {
+            return;
+        }
+
+        mScrollOffset -= loops * loop;
+        for (int i = 0; i < getChildCount(); i++) {
+            ((LayoutParams) getChildAt(i).getLayoutParams()).mVirtualIndex -= loops * itemCount;
+        }
+    }
+
+    /**
+     * Finds virtual index of adapter position which is closest to passed one.
+     */
+    private int toVirtualIndex(int position, int nearIndex, int itemCount) {
+        if (!mLooping) {
+            return position;
+        }
+
+        int delta = floorMod(position - nearIndex, itemCount);
+        if (delta > itemCount / 2) {
+            delta -= itemCount;
+        }
+
+        return nearIndex + delta;
+    }
+
+    private int toPosition(int index, int itemCount) {
+        return mLooping ? floorMod(index, itemCount) : index;
+    }
+
+    private int getCenterX() {
+        return (getPaddingLeft() + getWidth() - getPaddingRight()) / 2;
+    }
+
+    private static int floorDiv(int x, int y) {
+        int result = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? result - 1 : result;
+    }
+
+    private static int floorMod(int x, int y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
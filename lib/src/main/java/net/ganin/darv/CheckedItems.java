@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * Helper class that keeps checked items of some RecyclerView in sync with its adapter.
+ * <p>
+ * Checked positions are kept in {@link SparseBitSet}. If adapter has stable ids, checked ids are
+ * kept as well along with their last known positions in parallel arrays sorted by id, which
+ * allows to find items again after {@link RecyclerView.Adapter#notifyDataSetChanged()} the way
+ * ListView does.
+ */
+class CheckedItems {
+
+    /**
+     * How far from last known position item is searched by its id after data set change.
+     */
+    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
+
+    private final SparseBitSet mPositions = new SparseBitSet();
+    /* Checked ids in ascending order and their last known positions */
+    private long[] mIds = new long[0];
+    private int[] mIdPositions = new int[0];
+    private int mIdCount = 0;
+
+    boolean isChecked(int position) {
+        return mPositions.get(position);
+    }
+
+    /**
+     * Sets checked state of item.
+     *
+     * @param adapter  adapter item belongs to
+     * @param position adapter position of item
+     * @param checked  new checked state
+     * @return true if state was changed
+     */
+    boolean setChecked(@NonNull RecyclerView.Adapter adapter, int position, boolean checked) {
+        if (mPositions.get(position) == checked) {
+            return false;
+        }
+
+        mPositions.set(position, checked);
+
+        if (adapter.hasStableIds()) {
+            long id = adapter.getItemId(position);
+            if (checked) {
+                putId(id, position);
+            } else {
+                deleteId(id);
+            }
+        }
+
+        return true;
+    }
+
+    int getCount() {
+        return mPositions.cardinality();
+    }
+
+    /**
+     * @return checked positions in ascending order
+     */
+    @NonNull
+    int[] getPositions() {
+        int[] positions = new int[mPositions.cardinality()];
+        int n = 0;
+
+        for (int pos = mPositions.nextSetBit(0); pos >= 0; pos = mPositions.nextSetBit(pos + 1)) {
+            positions[n++] = pos;
+        }
+
+        return positions;
+    }
+
+    /**
+     * @return checked ids, empty if adapter has no stable ids
+     */
+    @NonNull
+    long[] getIds() {
+        return Arrays.copyOf(mIds, mIdCount);
+    }
+
+    void clear() {
+        mPositions.clear();
+        mIdCount = 0;
+    }
+
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        mPositions.insertRange(positionStart, itemCount);
+
+        for (int i = 0; i < mIdCount; i++) {
+            if (mIdPositions[i] >= positionStart) {
+                mIdPositions[i] += itemCount;
+            }
+        }
+    }
+
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        mPositions.removeRange(positionStart, itemCount);
+
+        for (int i = mIdCount - 1; i >= 0; i--) {
+            int pos = mIdPositions[i];
+            if (pos >= positionStart + itemCount) {
+                mIdPositions[i] = pos - itemCount;
+            } else if (pos >= positionStart) {
+                removeIdAt(i);
+            }
+        }
+    }
+
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        mPositions.moveRange(fromPosition, toPosition, itemCount);
+
+        for (int i = 0; i < mIdCount; i++) {
+            mIdPositions[i] = SparseBitSet.mapMoved(mIdPositions[i], fromPosition, toPosition,
+                    itemCount);
+        }
+    }
+
+    /**
+     * Items in range could have been replaced. Checked items which ids don't match anymore are
+     * searched nearby.
+     */
+    void onItemRangeChanged(@NonNull RecyclerView.Adapter adapter, int positionStart,
+            int itemCount) {
+        if (!adapter.hasStableIds() || mIdCount == 0) {
+            return;
+        }
+
+        for (int i = 0; i < mIdCount; i++) {
+            int pos = mIdPositions[i];
+            if (pos >= positionStart && pos < positionStart + itemCount
+                    && adapter.getItemId(pos) != mIds[i]) {
+                confirmPositionsById(adapter);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whole data set could have been changed.
+     */
+    void onChanged(@NonNull RecyclerView.Adapter adapter) {
+        if (adapter.hasStableIds()) {
+            confirmPositionsById(adapter);
+            return;
+        }
+
+        // Items are unknown without stable ids, only drop positions which are gone
+        int itemCount = adapter.getItemCount();
+        if (mPositions.nextSetBit(itemCount) >= 0) {
+            mPositions.clearFrom(itemCount);
+        }
+    }
+
+    private void confirmPositionsById(RecyclerView.Adapter adapter) {
+        int itemCount = adapter.getItemCount();
+        mPositions.clear();
+
+        for (int i = mIdCount - 1; i >= 0; i--) {
+            int pos = findPositionById(adapter, mIds[i], mIdPositions[i], itemCount);
+
+            if (pos == RecyclerView.NO_POSITION) {
+                removeIdAt(i);
+            } else {
+                mIdPositions[i] = pos;
+                mPositions.set(pos, true);
+            }
+        }
+    }
+
+    private void putId(long id, int position) {
+        int index = Arrays.binarySearch(mIds, 0, mIdCount, id);
+        if (index >= 0) {
+            mIdPositions[index] = position;
+            return;
+        }
+
+        index = ~index;
+        if (mIdCount == mIds.length) {
+            int capacity = Math.max(4, mIdCount * 2);
+            mIds = Arrays.copyOf(mIds, capacity);
+            mIdPositions = Arrays.copyOf(mIdPositions, capacity);
+        }
+
+        System.arraycopy(mIds, index, mIds, index + 1, mIdCount - index);
+        System.arraycopy(mIdPositions, index, mIdPositions, index + 1, mIdCount - index);
+        mIds[index] = id;
+        mIdPositions[index] = position;
+        mIdCount++;
+    }
+
+    private void deleteId(long id) {
+        int index = Arrays.binarySearch(mIds, 0, mIdCount, id);
+        if (index >= 0) {
+            removeIdAt(index);
+        }
+    }
+
+    private void removeIdAt(int index) {
+        System.arraycopy(mIds, index + 1, mIds, index, mIdCount - index - 1);
+        System.arraycopy(mIdPositions, index + 1, mIdPositions, index, mIdCount - index - 1);
+        mIdCount--;
+    }
+
+    private static int findPositionById(RecyclerView.Adapter adapter, long id, int lastPos,
+            int itemCount) {
+        if (lastPos < itemCount && adapter.getItemId(lastPos) == id) {
+            return lastPos;
+        }
+
+        int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
+        int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, itemCount);
+
+        for (int pos = start; pos < end; pos++) {
+            if (adapter.getItemId(pos) == id) {
+                return pos;
+            }
+        }
+
+        return RecyclerView.NO_POSITION;
+    }
+}
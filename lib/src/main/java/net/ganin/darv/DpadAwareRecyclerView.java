@@ -16,34 +16,40 @@
 
 package net.ganin.darv;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.os.ParcelableCompat;
+import android.support.v4.os.ParcelableCompatCreatorCallbacks;
+import android.support.v4.view.AbsSavedState;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
-import android.util.Property;
+import android.util.SparseIntArray;
 import android.view.FocusFinder;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
-import android.view.animation.Interpolator;
-import android.view.animation.LinearInterpolator;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * RecyclerView adaptation for D-pad.
@@ -98,31 +104,163 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         void onItemFocused(DpadAwareRecyclerView parent, View view, int position, long id);
     }
 
-    private static final Property<Drawable, Rect> BOUNDS_PROP = Property.of(
-            Drawable.class, Rect.class, "bounds");
+    /**
+     * Interface definition for a callback to be invoked when priority order of adapter positions
+     * changes, e.g. to reprioritize or cancel image decoding.
+     */
+    public interface OnPriorityOrderChangedListener {
+        /**
+         * Will be called at most once per animation frame when selection, scroll or layout
+         * changes.
+         *
+         * @param parent The DpadAwareRecyclerView which order belongs to
+         * @param order  Positions ordered by distance from selection. Reused between calls,
+         *               must not be retained
+         */
+        void onPriorityOrderChanged(DpadAwareRecyclerView parent, PriorityOrder order);
+    }
 
     /**
-     * Selector type.
-     * <p>
-     * Don't forget to change {@link #SELECTOR_COUNT} as well.
+     * View holder which updates its selected state by itself instead of
+     * {@link View#setSelected(boolean)} being called on the whole item.
+     *
+     * @see #setSelectedStateMode(int)
+     */
+    public interface SelectableViewHolder {
+        /**
+         * Will be called at most once per animation frame when item becomes selected or stops
+         * being selected. Holder should update only views whose drawables depend on selected
+         * state, and reset that state on bind. Selected holder which is rebound in place, e.g.
+         * with {@link Adapter#notifyItemChanged(int)}, is notified again after layout.
+         *
+         * @param selected true if item is selected
+         */
+        void onSelectedStateChanged(boolean selected);
+    }
+
+    /**
+     * Provider of type-ahead keys, e.g. titles of items.
+     *
+     * @see #setTypeAheadKeyProvider(TypeAheadKeyProvider)
      */
-    @IntDef({ FOREGROUND, BACKGROUND })
+    public interface TypeAheadKeyProvider {
+        /**
+         * Gets type-ahead key of item. Will be called on background thread, so implementation
+         * should read from data which is safe to access from there, e.g. immutable snapshot.
+         *
+         * @param position adapter position of item
+         * @return key of item or null if item can't be found by typing
+         */
+        @Nullable
+        String getTypeAheadKey(int position);
+    }
+
+    /**
+     * Payload passed to adapter when item which was bound lightly while navigation was in
+     * progress should be fully bound.
+     *
+     * @see #setNavigationBindModeEnabled(boolean)
+     */
+    public static final Object PAYLOAD_FULL_BIND = new Object();
+
+    /**
+     * Payload passed to adapter when only checked state of item has changed.
+     *
+     * @see #setChoiceMode(int)
+     * @see #isItemChecked(int)
+     */
+    public static final Object PAYLOAD_CHECKED = new Object();
+
+    /**
+     * Way selected state is propagated to items.
+     */
+    @IntDef({ SELECTED_STATE_VIEW, SELECTED_STATE_HOLDER })
     @Retention(RetentionPolicy.SOURCE)
-    private @interface Selector {}
+    public @interface SelectedStateMode {}
 
-    /*
-       Selector types.
-       Enumeration must start with 0 and be less than SELECTOR_COUNT.
-       See enforceSelectorIndexBounds method.
+    /**
+     * {@link View#setSelected(boolean)} is called on item view, which refreshes drawable state of
+     * its whole subtree.
+     */
+    public static final int SELECTED_STATE_VIEW = 0;
+
+    /**
+     * Selection is only marked for item, and holders implementing {@link SelectableViewHolder}
+     * are notified once per animation frame.
+     */
+    public static final int SELECTED_STATE_HOLDER = 1;
+
+    /**
+     * Selector motion model.
+     */
+    @IntDef({ SELECTOR_MOTION_VELOCITY, SELECTOR_MOTION_SPRING })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface SelectorMotion {}
+
+    /**
+     * Selector flies with constant velocity set by {@link #setSelectorVelocity(int)}. Flight is
+     * restarted on every selection change.
+     */
+    public static final int SELECTOR_MOTION_VELOCITY = 0;
+
+    /**
+     * Selector follows critically damped spring which keeps its velocity on selection change.
+     *
+     * @see #setSelectorSpringStiffness(float)
+     * @see #setSelectorSettleThreshold(float)
+     */
+    public static final int SELECTOR_MOTION_SPRING = 1;
+
+    /**
+     * Choice mode.
+     */
+    @IntDef({ CHOICE_MODE_NONE, CHOICE_MODE_MULTIPLE })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ChoiceMode {}
+
+    /**
+     * Normal list that does not indicate choices.
+     */
+    public static final int CHOICE_MODE_NONE = 0;
+
+    /**
+     * The list allows multiple choices.
+     */
+    public static final int CHOICE_MODE_MULTIPLE = 2;
+
+    /**
+     * Anchor offset value meaning that selected item was not laid out when state was saved.
+     */
+    private static final int NO_ANCHOR_OFFSET = Integer.MIN_VALUE;
+
+    /**
+     * Default size of item view cache of RecyclerView.
+     */
+    static final int DEFAULT_ITEM_VIEW_CACHE_SIZE = 2;
+
+    /**
+     * Default time after last typed character when type-ahead prefix starts over.
      */
-    private static final int FOREGROUND = 0;
-    private static final int BACKGROUND = 1;
-    private static final int SELECTOR_COUNT = 2;
+    private static final long DEFAULT_TYPE_AHEAD_TIMEOUT_MS = 1000;
+
+    private static final OnItemClickListener[] NO_CLICK_LISTENERS = new OnItemClickListener[0];
+    private static final OnItemSelectedListener[] NO_SELECTED_LISTENERS =
+            new OnItemSelectedListener[0];
 
     private class LocalAdapterDataObserver extends AdapterDataObserver {
 
         @Override
         public void onChanged() {
+            mSelectedRebindPending = mNotifiedSelectedChild != null;
+
+            if (mChoiceMode != CHOICE_MODE_NONE) {
+                mCheckedItems.onChanged(getAdapter());
+            }
+
+            if (mTypeAheadIndex != null) {
+                mTypeAheadIndex.rebuild(getAdapter().getItemCount());
+            }
+
             // Case when adapter hasn't stable ids. Other case is handled natively by RecyclerView.
             if (!getAdapter().hasStableIds()) {
                 mPendingSelectionInt = getSelectedItemPosition();
@@ -134,6 +272,14 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (mChoiceMode != CHOICE_MODE_NONE) {
+                mCheckedItems.onItemRangeChanged(getAdapter(), positionStart, itemCount);
+            }
+
+            if (mTypeAheadIndex != null) {
+                mTypeAheadIndex.onItemRangeChanged(positionStart, itemCount);
+            }
+
             // Case when adapter hasn't stable ids. Other case is handled natively by RecyclerView.
             if (!getAdapter().hasStableIds()) {
                 int selectedPos = getSelectedItemPosition();
@@ -148,11 +294,31 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
-            onItemRangeChanged(positionStart, itemCount);
+            // Any payload rebinds item, so selected holder must learn its state again
+            if (mNotifiedSelectedChild != null) {
+                int selectedPos = getChildAdapterPosition(mNotifiedSelectedChild);
+                if (selectedPos >= positionStart && selectedPos < positionStart + itemCount) {
+                    mSelectedRebindPending = true;
+                }
+            }
+
+            // Neither full bind nor checked state change item identity so selection is left alone.
+            if (payload != PAYLOAD_FULL_BIND && payload != PAYLOAD_CHECKED) {
+                onItemRangeChanged(positionStart, itemCount);
+            }
         }
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mCheckedItems.onItemRangeMoved(fromPosition, toPosition, itemCount);
+            if (mTypeAheadIndex != null) {
+                mTypeAheadIndex.onItemRangeMoved(fromPosition, toPosition, itemCount);
+            }
+            if (mSectionIndex != null) {
+                mSectionIndex.onItemRangeMoved(fromPosition, toPosition, itemCount,
+                        getAdapter().getItemCount());
+            }
+
             int selectedPos = getSelectedItemPosition();
             if (selectedPos >= fromPosition && selectedPos < fromPosition + itemCount) {
                 setSelection(selectedPos - fromPosition + toPosition);
@@ -161,6 +327,14 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
+            mCheckedItems.onItemRangeInserted(positionStart, itemCount);
+            if (mTypeAheadIndex != null) {
+                mTypeAheadIndex.onItemRangeInserted(positionStart, itemCount);
+            }
+            if (mSectionIndex != null) {
+                mSectionIndex.onItemRangeInserted(positionStart, itemCount);
+            }
+
             int selectedPos = getSelectedItemPosition();
             if (selectedPos >= positionStart && selectedPos < positionStart + itemCount) {
                 setSelection(selectedPos + itemCount);
@@ -169,6 +343,15 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mCheckedItems.onItemRangeRemoved(positionStart, itemCount);
+            if (mTypeAheadIndex != null) {
+                mTypeAheadIndex.onItemRangeRemoved(positionStart, itemCount);
+            }
+            if (mSectionIndex != null) {
+                mSectionIndex.onItemRangeRemoved(positionStart, itemCount,
+                        getAdapter().getItemCount());
+            }
+
             int selectedPos = getSelectedItemPosition();
             if (selectedPos >= positionStart && selectedPos < positionStart + itemCount) {
                 setSelection(positionStart);
@@ -176,57 +359,106 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         }
     }
 
-    private final class SelectAnimatorListener extends AnimatorListenerAdapter {
+    private final class SelectListener implements FloatingSelector.Listener {
 
         @Nullable View mToSelect;
         @Nullable View mToDeselect;
 
         @Override
-        public void onAnimationStart(Animator animation) {
+        public void onSelectorMoveStarted() {
             if (mToDeselect != null) {
                 childSetSelected(mToDeselect, false);
             }
         }
 
         @Override
-        public void onAnimationEnd(Animator animation) {
+        public void onSelectorArrived() {
             if (mToSelect != null) {
                 childSetSelected(mToSelect, true);
             }
+
+            scheduleFullBindIfSettled();
         }
 
         @Override
-        public void onAnimationCancel(Animator animation) {
-            onAnimationEnd(animation);
+        public void onSelectorProgress(float progress) {
+            updateFocusHighlight(progress);
         }
     }
 
     /**
-     * Callback for {@link Drawable} selectors. View must keep this reference in order for
-     * {@link java.lang.ref.WeakReference} in selectors to survive.
-     *
-     * @see Drawable#setCallback(Drawable.Callback)
+     * Selection state which survives configuration change and process death. Layout manager
+     * state is saved by RecyclerView itself and is kept as super state.
      */
-    private final Drawable.Callback mSelectorCallback = new Drawable.Callback() {
-        @Override
-        public void invalidateDrawable(@NonNull Drawable who) {
-            invalidate(who.getBounds());
+    public static class SavedState extends AbsSavedState {
+
+        int mSelectedPosition = NO_POSITION;
+        long mSelectedId = NO_ID;
+        int mAnchorOffset = NO_ANCHOR_OFFSET;
+
+        SavedState(Parcelable superState) {
+            super(superState);
         }
 
-        @Override
-        public void scheduleDrawable(Drawable who, Runnable what, long when) {
-            getHandler().postAtTime(what, who, when);
+        SavedState(Parcel in, ClassLoader loader) {
+            super(in, loader);
+            mSelectedPosition = in.readInt();
+            mSelectedId = in.readLong();
+            mAnchorOffset = in.readInt();
         }
 
         @Override
-        public void unscheduleDrawable(Drawable who, Runnable what) {
-            getHandler().removeCallbacks(what, who);
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(mSelectedPosition);
+            dest.writeLong(mSelectedId);
+            dest.writeInt(mAnchorOffset);
         }
-    };
 
+        public static final Creator<SavedState> CREATOR = ParcelableCompat.newCreator(
+                new ParcelableCompatCreatorCallbacks<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+                        return new SavedState(in, loader);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                });
+    }
+
+    /* Listeners set via setters */
     private OnItemClickListener mOnItemClickListener;
     private OnItemSelectedListener mOnItemSelectedListener;
 
+    /*
+       Listeners added via add* methods. Arrays are never modified, they are replaced instead,
+       so dispatch loop is safe against listeners adding or removing themselves.
+     */
+    private OnItemClickListener[] mOnItemClickListeners = NO_CLICK_LISTENERS;
+    private OnItemSelectedListener[] mOnItemSelectedListeners = NO_SELECTED_LISTENERS;
+
+    /**
+     * Page jump key bindings. Value is number of span groups plus one, negative for backward
+     * jumps, so that {@link ExtGridLayoutManager#PAGE_JUMP_VIEWPORT} keeps its direction.
+     */
+    private final SparseIntArray mPageJumpKeys = new SparseIntArray();
+
+    @Nullable
+    private TypeAheadIndex mTypeAheadIndex;
+    private final StringBuilder mTypeAheadPrefix = new StringBuilder();
+    private long mTypeAheadLastTime;
+    private long mTypeAheadTimeout = DEFAULT_TYPE_AHEAD_TIMEOUT_MS;
+
+    @Nullable
+    private SectionIndex mSectionIndex;
+
+    @Nullable
+    private AccelerationProfile mAccelerationProfile;
+    private OnPriorityOrderChangedListener mOnPriorityOrderChangedListener;
+
     private final AdapterDataObserver mDataObserver = new LocalAdapterDataObserver();
 
     /**
@@ -234,6 +466,23 @@ public class DpadAwareRecyclerView extends RecyclerView implements
      */
     private int mPendingSelectionInt = NO_POSITION;
 
+    /**
+     * Id of item that will be selected after certain layout pass. Takes precedence over
+     * {@link #mPendingSelectionInt} if adapter has stable ids.
+     */
+    private long mPendingSelectionId = NO_ID;
+
+    /**
+     * Restored state which waits for layout manager to be set.
+     */
+    private SavedState mPendingSavedState;
+
+    /* Focus store attributes */
+    private FocusStore mFocusStore;
+    private String mFocusStoreScreenKey;
+    private String mFocusStoreListKey;
+    /* Focus store attributes */
+
     /**
      * Focus helper.
      */
@@ -241,19 +490,204 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
     private boolean mRememberLastFocus = true;
 
+    /* Choice attributes */
+    @ChoiceMode
+    private int mChoiceMode = CHOICE_MODE_NONE;
+    private final CheckedItems mCheckedItems = new CheckedItems();
+    /* Choice attributes */
+
     private boolean mSmoothScrolling = false;
 
+    /* Recycling attributes set by app, layout manager may only tune within them */
+    private boolean mRecycledViewPoolSet = false;
+    private int mItemViewCacheSize = DEFAULT_ITEM_VIEW_CACHE_SIZE;
+    /* Recycling attributes */
+
     /* Selector attributes */
     private final Rect mSelectorSourceRect = new Rect();
     private final Rect mSelectorDestRect = new Rect();
-    private final Interpolator mTransitionInterpolator = new LinearInterpolator();
-    private final Animator[] mSelectorAnimators = new Animator[SELECTOR_COUNT];
-    private final Drawable[] mSelectorDrawables = new Drawable[SELECTOR_COUNT];
-    private AnimatorSet mSelectorAnimator; // Unfortunately cannot be reused
+    private final FloatingSelector mFloatingSelector = new FloatingSelector(this);
+    @Nullable
+    private SelectorLayer mBackgroundSelectorLayer;
+    @Nullable
+    private SelectorLayer mForegroundSelectorLayer;
     private int mSelectorVelocity = 0;
+    @Nullable
+    private SelectorHost mSelectorHost;
     /* Selector attributes */
 
-    private final SelectAnimatorListener mReusableSelectListener = new SelectAnimatorListener();
+    private final SelectListener mReusableSelectListener = new SelectListener();
+
+    /* Selected state attributes */
+    @SelectedStateMode
+    private int mSelectedStateMode = SELECTED_STATE_VIEW;
+    /* Selected item and the one holders were last notified about */
+    @Nullable
+    private View mSelectedChild;
+    @Nullable
+    private View mNotifiedSelectedChild;
+    private boolean mSelectedStateUpdatePosted = false;
+    /* Notified selected holder is going to be rebound in place */
+    private boolean mSelectedRebindPending = false;
+
+    private final Runnable mSelectedStateUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSelectedStateUpdatePosted = false;
+            dispatchSelectedStateChanged();
+        }
+    };
+
+    private final OnChildAttachStateChangeListener mSelectedStateTracker =
+            new OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    // Holder is about to be recycled, so it must not stay selected
+                    if (view == mNotifiedSelectedChild) {
+                        notifyHolderSelected(view, false);
+                        mNotifiedSelectedChild = null;
+                    }
+
+                    if (view == mSelectedChild) {
+                        mSelectedChild = null;
+                    }
+                }
+            };
+    /* Selected state attributes */
+
+    /* Focus highlight attributes */
+    @Nullable
+    private FocusHighlight mFocusHighlight;
+    /* Item gaining highlight and its level at the start of move */
+    @Nullable
+    private View mHighlightIn;
+    private float mHighlightInFrom;
+    private float mHighlightInLevel;
+    /* Item losing highlight and its level at the start of move */
+    @Nullable
+    private View mHighlightOut;
+    private float mHighlightOutFrom;
+    private float mHighlightOutLevel;
+    private int mHighlightDrawingIndex = -1;
+    /* Step of app drawing order at which highlighted item would be drawn */
+    private int mHighlightDrawingStep = -1;
+    /* Drawing order set by app, highlight drawing order is based on it */
+    @Nullable
+    private ChildDrawingOrderCallback mChildDrawingOrderCallback;
+
+    private final OnChildAttachStateChangeListener mHighlightTracker =
+            new OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    if (mFocusHighlight != null) {
+                        mFocusHighlight.apply(view, getHighlightLevel(view));
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    // Recycled view must not carry highlight to other item
+                    FocusHighlight.reset(view);
+
+                    if (view == mHighlightIn) {
+                        mHighlightIn = null;
+                    } else if (view == mHighlightOut) {
+                        mHighlightOut = null;
+                    }
+                }
+            };
+
+    /**
+     * Draws highlighted item last, so it's not overlapped by neighbours when scaled. Other items
+     * keep drawing order set by app.
+     */
+    private final ChildDrawingOrderCallback mHighlightDrawingOrder =
+            new ChildDrawingOrderCallback() {
+                @Override
+                public int onGetChildDrawingOrder(int childCount, int i) {
+                    if (i == 0) {
+                        mHighlightDrawingIndex = mHighlightIn != null
+                                ? indexOfChild(mHighlightIn)
+                                : -1;
+                        mHighlightDrawingStep = mHighlightDrawingIndex;
+
+                        if (mChildDrawingOrderCallback != null && mHighlightDrawingIndex >= 0) {
+                            for (int step = 0; step < childCount; step++) {
+                                if (getAppDrawingOrder(childCount, step)
+                                        == mHighlightDrawingIndex) {
+                                    mHighlightDrawingStep = step;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+
+                    int highlighted = mHighlightDrawingIndex;
+                    if (highlighted < 0 || highlighted >= childCount) {
+                        return getAppDrawingOrder(childCount, i);
+                    }
+
+                    if (i == childCount - 1) {
+                        return highlighted;
+                    }
+
+                    return getAppDrawingOrder(childCount,
+                            i < mHighlightDrawingStep ? i : i + 1);
+                }
+            };
+    /* Focus highlight attributes */
+
+    private final ViewHolderPrewarmer mPrewarmer = new ViewHolderPrewarmer(this);
+
+    /* Priority order attributes */
+    private final PriorityOrder mPriorityOrder = new PriorityOrder();
+    private int mPriorityLookahead = 2;
+    private boolean mPriorityUpdatePosted = false;
+    private int mLastFocusedPosition = NO_POSITION;
+    private int mGroupDirection = 0;
+    private int mSpanDirection = 0;
+
+    private final Runnable mPriorityUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPriorityUpdatePosted = false;
+            dispatchPriorityOrderChanged();
+        }
+    };
+    /* Priority order attributes */
+
+    /* Navigation bind mode attributes */
+    private boolean mNavigationBindMode = false;
+    private boolean mNavigationKeyHeld = false;
+    private final Set<ViewHolder> mLightBoundHolders =
+            Collections.newSetFromMap(new IdentityHashMap<ViewHolder, Boolean>());
+    /* Recycler listener set by app, light bind tracker forwards to it */
+    @Nullable
+    private RecyclerListener mRecyclerListener;
+
+    private final RecyclerListener mLightBindTracker = new RecyclerListener() {
+        @Override
+        public void onViewRecycled(ViewHolder holder) {
+            // Pooled holder is rebound before reuse anyway
+            mLightBoundHolders.remove(holder);
+
+            if (mRecyclerListener != null) {
+                mRecyclerListener.onViewRecycled(holder);
+            }
+        }
+    };
+
+    private final Runnable mFullBindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchFullBind();
+        }
+    };
+    /* Navigation bind mode attributes */
 
     /**
      * {@inheritDoc}
@@ -299,6 +733,12 @@ public class DpadAwareRecyclerView extends RecyclerView implements
                         R.styleable.DpadAwareRecyclerView_selectorVelocity, 0));
             }
 
+            int motion = ta.getInt(R.styleable.DpadAwareRecyclerView_selectorMotion,
+                    SELECTOR_MOTION_VELOCITY);
+            setSelectorMotion(motion == SELECTOR_MOTION_SPRING
+                    ? SELECTOR_MOTION_SPRING
+                    : SELECTOR_MOTION_VELOCITY);
+
             setSmoothScrolling(ta.getBoolean(
                     R.styleable.DpadAwareRecyclerView_smoothScrolling, false));
 
@@ -308,6 +748,9 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         setFocusable(true);
         setDescendantFocusability(FOCUS_BEFORE_DESCENDANTS);
         setWillNotDraw(false);
+
+        mFloatingSelector.setListener(mReusableSelectListener);
+        super.setRecyclerListener(mLightBindTracker);
     }
 
     /**
@@ -329,112 +772,427 @@ public class DpadAwareRecyclerView extends RecyclerView implements
     }
 
     /**
-     * Sets smooth scrolling flag. If set to true, container will smoothly scroll to selected child
-     * if it is outside of the viewport (by viewport one means some 'camera' rectangle, not
-     * necessarily all screen).
+     * Sets selector motion model.
      *
-     * @param smoothScrolling if true, enable smooth scrolling
+     * @param motion {@link #SELECTOR_MOTION_VELOCITY} or {@link #SELECTOR_MOTION_SPRING}
      */
-    public void setSmoothScrolling(boolean smoothScrolling) {
-        mSmoothScrolling = smoothScrolling;
+    public void setSelectorMotion(@SelectorMotion int motion) {
+        if (motion != SELECTOR_MOTION_VELOCITY && motion != SELECTOR_MOTION_SPRING) {
+            throw new IllegalArgumentException("Unknown selector motion: " + motion);
+        }
+
+        mFloatingSelector.setSpring(motion == SELECTOR_MOTION_SPRING);
     }
 
-    /**
-     * Gets smooth scrolling flag.
-     *
-     * @return true if smooth scrolling is enabled
-     * @see #setSmoothScrolling
-     */
-    public boolean getSmoothScrolling() {
-        return mSmoothScrolling;
+    @SelectorMotion
+    public int getSelectorMotion() {
+        return mFloatingSelector.isSpring() ? SELECTOR_MOTION_SPRING : SELECTOR_MOTION_VELOCITY;
     }
 
     /**
-     * Sets background selector which will be drawn behind the child.
+     * Sets stiffness of selector spring. Greater stiffness means faster selector. Spring is
+     * critically damped, so it never overshoots.
      *
-     * @param drawable selector drawable
+     * @param stiffness stiffness for unit mass, 1/s^2
+     * @see #SELECTOR_MOTION_SPRING
      */
-    public void setBackgroundSelector(Drawable drawable) {
-        setSelector(BACKGROUND, drawable);
+    public void setSelectorSpringStiffness(float stiffness) {
+        mFloatingSelector.setSpringStiffness(stiffness);
+    }
+
+    public float getSelectorSpringStiffness() {
+        return mFloatingSelector.getSpringStiffness();
     }
 
     /**
-     * Sets background selector which will be drawn behind the child.
+     * Sets distance to target within which spring selector is considered arrived, so item gets
+     * selected while selector is still finishing its motion.
      *
-     * @param resId selector drawable's resource ID
+     * @param threshold distance in px
+     * @see #SELECTOR_MOTION_SPRING
      */
-    public void setBackgroundSelector(@DrawableRes int resId) {
-        setBackgroundSelector(getDrawableResource(resId));
+    public void setSelectorSettleThreshold(float threshold) {
+        mFloatingSelector.setSettleThreshold(threshold);
+    }
+
+    public float getSelectorSettleThreshold() {
+        return mFloatingSelector.getSettleThreshold();
     }
 
     /**
-     * Gets background selector which will be drawn behind the child.
+     * Makes this list share selector of given host with other lists registered there. Host must
+     * be ancestor of this list. While host is set, selector layers and motion settings of this
+     * list are ignored in favor of host ones.
      *
-     * @return background selector
+     * @param host selector host or null to draw own selector
      */
-    public Drawable getBackgroundSelector() {
-        return getSelector(FOREGROUND);
+    public void setSelectorHost(@Nullable SelectorHost host) {
+        if (mSelectorHost == host) {
+            return;
+        }
+
+        if (mSelectorHost != null) {
+            mSelectorHost.unregisterList(this);
+        }
+
+        mSelectorHost = host;
+
+        if (host != null && getWindowToken() != null) {
+            host.registerList(this);
+        }
+
+        invalidate();
+    }
+
+    @Nullable
+    public SelectorHost getSelectorHost() {
+        return mSelectorHost;
     }
 
     /**
-     * Sets foreground selector which will be drawn atop of the child.
+     * Sets the way selected state is propagated to items. In {@link #SELECTED_STATE_HOLDER}
+     * mode {@link View#setSelected(boolean)} is not called at all, so only holders implementing
+     * {@link SelectableViewHolder} learn about selection.
      *
-     * @param drawable selector drawable
+     * @param mode {@link #SELECTED_STATE_VIEW} or {@link #SELECTED_STATE_HOLDER}
      */
-    public void setForegroundSelector(Drawable drawable) {
-        setSelector(FOREGROUND, drawable);
+    public void setSelectedStateMode(@SelectedStateMode int mode) {
+        if (mode != SELECTED_STATE_VIEW && mode != SELECTED_STATE_HOLDER) {
+            throw new IllegalArgumentException("Unknown selected state mode: " + mode);
+        }
+
+        if (mode == mSelectedStateMode) {
+            return;
+        }
+
+        if (mode == SELECTED_STATE_HOLDER) {
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                if (child.isSelected()) {
+                    child.setSelected(false);
+                    mSelectedChild = child;
+                }
+            }
+
+            addOnChildAttachStateChangeListener(mSelectedStateTracker);
+            postSelectedStateUpdate();
+        } else {
+            removeOnChildAttachStateChangeListener(mSelectedStateTracker);
+
+            if (mNotifiedSelectedChild != null) {
+                notifyHolderSelected(mNotifiedSelectedChild, false);
+            }
+
+            if (mSelectedChild != null) {
+                mSelectedChild.setSelected(true);
+            }
+
+            mSelectedChild = null;
+            mNotifiedSelectedChild = null;
+            mSelectedRebindPending = false;
+        }
+
+        mSelectedStateMode = mode;
+    }
+
+    @SelectedStateMode
+    public int getSelectedStateMode() {
+        return mSelectedStateMode;
     }
 
     /**
-     * Sets foreground selector which will be drawn atop of the child.
+     * Checks whether child is selected regardless of selected state mode.
      *
-     * @param resId selector drawable's resource ID
+     * @param child child of this view
+     * @return true if child is selected
      */
-    public void setForegroundSelector(@DrawableRes int resId) {
-        setForegroundSelector(getDrawableResource(resId));
+    public boolean isChildSelected(@NonNull View child) {
+        return mSelectedStateMode == SELECTED_STATE_HOLDER
+                ? child == mSelectedChild
+                : child.isSelected();
     }
 
     /**
-     * Gets foreground selector which will be drawn atop of the child.
+     * Sets focus highlight effect. Highlight follows selector flight: it grows on newly focused
+     * item and fades on previous one as selector moves, or changes immediately if there are no
+     * selector layers. While highlight is set, focused item is drawn last and other items keep
+     * order of {@link ChildDrawingOrderCallback} set by app.
      *
-     * @return foreground selector
+     * @param highlight focus highlight or null to remove it
      */
-    public Drawable getForegroundSelector() {
-        return getSelector(FOREGROUND);
-    }
+    public void setFocusHighlight(@Nullable FocusHighlight highlight) {
+        if (mFocusHighlight != null) {
+            removeOnChildAttachStateChangeListener(mHighlightTracker);
+            super.setChildDrawingOrderCallback(mChildDrawingOrderCallback);
+        }
 
-    private void setSelector(@Selector int index, Drawable drawable) {
-        enforceSelectorIndexBounds(index);
+        mFocusHighlight = highlight;
+        mHighlightIn = getFocusedChild();
+        mHighlightInFrom = mHighlightInLevel = 1f;
+        mHighlightOut = null;
 
-        mSelectorDrawables[index] = drawable;
-        mSelectorAnimators[index] = createSelectorAnimator(drawable);
-        setSelectorCallback(drawable);
-    }
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (highlight != null) {
+                highlight.apply(child, getHighlightLevel(child));
+            } else {
+                FocusHighlight.reset(child);
+            }
+        }
 
-    private Drawable getSelector(int index) {
-        enforceSelectorIndexBounds(index);
+        if (highlight != null) {
+            addOnChildAttachStateChangeListener(mHighlightTracker);
+            super.setChildDrawingOrderCallback(mHighlightDrawingOrder);
+        }
+    }
 
-        return mSelectorDrawables[index];
+    @Nullable
+    public FocusHighlight getFocusHighlight() {
+        return mFocusHighlight;
     }
 
     /**
-     * Ensures that passed number is valid selector index.
+     * Sets smooth scrolling flag. If set to true, container will smoothly scroll to selected child
+     * if it is outside of the viewport (by viewport one means some 'camera' rectangle, not
+     * necessarily all screen).
      *
-     * @param index selector index
-     * @throws IndexOutOfBoundsException if index is not valid selector index
+     * @param smoothScrolling if true, enable smooth scrolling
      */
-    private void enforceSelectorIndexBounds(int index) {
-        if (index < 0 || index >= SELECTOR_COUNT) {
-            throw new IndexOutOfBoundsException("Passed index is not in valid range which is"
-                    + " [0; " + SELECTOR_COUNT + ").");
-        }
+    public void setSmoothScrolling(boolean smoothScrolling) {
+        mSmoothScrolling = smoothScrolling;
     }
 
     /**
-     * Register a callback to be invoked when an item in this RecyclerView has
-     * been clicked.
+     * Gets smooth scrolling flag.
      *
-     * @param listener the callback that will be invoked
+     * @return true if smooth scrolling is enabled
+     * @see #setSmoothScrolling
+     */
+    public boolean getSmoothScrolling() {
+        return mSmoothScrolling;
+    }
+
+    /**
+     * Enables navigation bind mode. While navigation is in progress (selector is flying, list is
+     * scrolling or directional key is held) {@link #shouldBindLightly(ViewHolder)} returns true
+     * and adapter may bind items lightly (e.g. skip image requests). When navigation settles,
+     * items which were bound lightly and are still bound, attached, cached or prefetched, get
+     * {@link Adapter#notifyItemChanged(int, Object)} with {@link #PAYLOAD_FULL_BIND}.
+     *
+     * @param enabled if true, enable navigation bind mode
+     */
+    public void setNavigationBindModeEnabled(boolean enabled) {
+        if (mNavigationBindMode == enabled) {
+            return;
+        }
+
+        mNavigationBindMode = enabled;
+
+        if (!enabled) {
+            removeCallbacks(mFullBindRunnable);
+            mLightBoundHolders.clear();
+        }
+    }
+
+    /**
+     * Gets navigation bind mode flag.
+     *
+     * @return true if navigation bind mode is enabled
+     * @see #setNavigationBindModeEnabled(boolean)
+     */
+    public boolean isNavigationBindModeEnabled() {
+        return mNavigationBindMode;
+    }
+
+    /**
+     * Checks whether adapter should bind items lightly right now. Always false if navigation bind
+     * mode is disabled.
+     *
+     * @return true if navigation is in progress
+     * @see #setNavigationBindModeEnabled(boolean)
+     */
+    public boolean isNavigationInProgress() {
+        return mNavigationBindMode
+                && (mNavigationKeyHeld
+                || getScrollState() != SCROLL_STATE_IDLE
+                || isSelectorMoving());
+    }
+
+    /**
+     * Checks whether adapter should bind holder lightly right now. Should be called from
+     * {@link Adapter#onBindViewHolder(ViewHolder, int)}, so holder is remembered and fully bound
+     * with {@link #PAYLOAD_FULL_BIND} when navigation settles.
+     *
+     * @param holder holder being bound
+     * @return true if holder should be bound lightly
+     * @see #setNavigationBindModeEnabled(boolean)
+     */
+    public boolean shouldBindLightly(@NonNull ViewHolder holder) {
+        if (isNavigationInProgress()) {
+            mLightBoundHolders.add(holder);
+            return true;
+        }
+
+        mLightBoundHolders.remove(holder);
+        return false;
+    }
+
+    /**
+     * Forgets held navigation key whose release this list may never see, e.g. because focus or
+     * window focus has gone.
+     */
+    private void releaseNavigationKey() {
+        if (mNavigationKeyHeld) {
+            mNavigationKeyHeld = false;
+            scheduleFullBindIfSettled();
+        }
+    }
+
+    /**
+     * Ends navigation driven by held key once focus or window focus is gone, since key release
+     * won't come to this list.
+     */
+    private void interruptNavigation() {
+        releaseNavigationKey();
+
+        LayoutManager lm = getLayoutManager();
+        if (lm instanceof ExtGridLayoutManager) {
+            ((ExtGridLayoutManager) lm).stopContinuousScroll();
+        }
+    }
+
+    /**
+     * Sets background selector which will be drawn behind the child.
+     *
+     * @param drawable selector drawable
+     */
+    public void setBackgroundSelector(Drawable drawable) {
+        mBackgroundSelectorLayer = replaceSelectorLayer(mBackgroundSelectorLayer, drawable,
+                SelectorLayer.Z_BELOW_CHILDREN);
+    }
+
+    /**
+     * Sets background selector which will be drawn behind the child.
+     *
+     * @param resId selector drawable's resource ID
+     */
+    public void setBackgroundSelector(@DrawableRes int resId) {
+        setBackgroundSelector(getDrawableResource(resId));
+    }
+
+    /**
+     * Gets background selector which will be drawn behind the child.
+     *
+     * @return background selector
+     */
+    public Drawable getBackgroundSelector() {
+        return mBackgroundSelectorLayer != null ? mBackgroundSelectorLayer.getDrawable() : null;
+    }
+
+    /**
+     * Sets foreground selector which will be drawn atop of the child.
+     *
+     * @param drawable selector drawable
+     */
+    public void setForegroundSelector(Drawable drawable) {
+        mForegroundSelectorLayer = replaceSelectorLayer(mForegroundSelectorLayer, drawable,
+                SelectorLayer.Z_ABOVE_CHILDREN);
+    }
+
+    /**
+     * Sets foreground selector which will be drawn atop of the child.
+     *
+     * @param resId selector drawable's resource ID
+     */
+    public void setForegroundSelector(@DrawableRes int resId) {
+        setForegroundSelector(getDrawableResource(resId));
+    }
+
+    /**
+     * Gets foreground selector which will be drawn atop of the child.
+     *
+     * @return foreground selector
+     */
+    public Drawable getForegroundSelector() {
+        return mForegroundSelectorLayer != null ? mForegroundSelectorLayer.getDrawable() : null;
+    }
+
+    /**
+     * Replaces one of default selector layers. Default layers go first, so custom layers of
+     * the same z-order are drawn atop of them.
+     */
+    @Nullable
+    private SelectorLayer replaceSelectorLayer(@Nullable SelectorLayer oldLayer,
+            @Nullable Drawable drawable, @SelectorLayer.ZOrder int zOrder) {
+        if (oldLayer != null) {
+            mFloatingSelector.removeLayer(oldLayer);
+        }
+
+        if (drawable == null) {
+            return null;
+        }
+
+        SelectorLayer layer = new SelectorLayer(drawable, zOrder);
+        mFloatingSelector.addLayer(0, layer);
+        return layer;
+    }
+
+    /**
+     * Adds selector layer atop of already added layers of the same z-order. All layers fly
+     * together driven by single animation, so adding layers doesn't add animation callbacks or
+     * invalidations.
+     *
+     * @param layer selector layer
+     * @throws IllegalStateException if layer is already added
+     */
+    public void addSelectorLayer(@NonNull SelectorLayer layer) {
+        mFloatingSelector.addLayer(mFloatingSelector.getLayerCount(), layer);
+    }
+
+    /**
+     * Removes selector layer.
+     *
+     * @param layer selector layer
+     * @return true if layer was removed
+     */
+    public boolean removeSelectorLayer(@NonNull SelectorLayer layer) {
+        if (layer == mBackgroundSelectorLayer) {
+            mBackgroundSelectorLayer = null;
+        } else if (layer == mForegroundSelectorLayer) {
+            mForegroundSelectorLayer = null;
+        }
+
+        return mFloatingSelector.removeLayer(layer);
+    }
+
+    /**
+     * @return number of selector layers including foreground and background selectors
+     */
+    public int getSelectorLayerCount() {
+        return mFloatingSelector.getLayerCount();
+    }
+
+    /**
+     * Gets selector layer by its index in drawing order.
+     *
+     * @param index index of layer
+     * @return selector layer
+     */
+    @NonNull
+    public SelectorLayer getSelectorLayer(int index) {
+        if (index < 0 || index >= mFloatingSelector.getLayerCount()) {
+            throw new IndexOutOfBoundsException("Passed index is not in valid range which is"
+                    + " [0; " + mFloatingSelector.getLayerCount() + ").");
+        }
+
+        return mFloatingSelector.getLayer(index);
+    }
+
+    /**
+     * Register a callback to be invoked when an item in this RecyclerView has
+     * been clicked.
+     *
+     * @param listener the callback that will be invoked
      */
     public void setOnItemClickListener(OnItemClickListener listener) {
         mOnItemClickListener = listener;
@@ -466,6 +1224,118 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         return mOnItemSelectedListener;
     }
 
+    /**
+     * Adds a callback to be invoked when an item in this RecyclerView has been clicked. Unlike
+     * {@link #setOnItemClickListener(OnItemClickListener)} any number of callbacks can be added.
+     *
+     * @param listener the callback that will be invoked
+     */
+    public void addOnItemClickListener(@NonNull OnItemClickListener listener) {
+        mOnItemClickListeners = arrayWith(mOnItemClickListeners, listener);
+    }
+
+    /**
+     * Removes a callback added via {@link #addOnItemClickListener(OnItemClickListener)}.
+     *
+     * @param listener the callback to remove
+     */
+    public void removeOnItemClickListener(@NonNull OnItemClickListener listener) {
+        mOnItemClickListeners = arrayWithout(mOnItemClickListeners, listener);
+    }
+
+    /**
+     * Adds a callback to be invoked when an item in this RecyclerView has been selected. Unlike
+     * {@link #setOnItemSelectedListener(OnItemSelectedListener)} any number of callbacks can be
+     * added.
+     *
+     * @param listener the callback that will run
+     */
+    public void addOnItemSelectedListener(@NonNull OnItemSelectedListener listener) {
+        mOnItemSelectedListeners = arrayWith(mOnItemSelectedListeners, listener);
+    }
+
+    /**
+     * Removes a callback added via {@link #addOnItemSelectedListener(OnItemSelectedListener)}.
+     *
+     * @param listener the callback to remove
+     */
+    public void removeOnItemSelectedListener(@NonNull OnItemSelectedListener listener) {
+        mOnItemSelectedListeners = arrayWithout(mOnItemSelectedListeners, listener);
+    }
+
+    private static <T> T[] arrayWith(T[] array, T item) {
+        for (T t : array) {
+            if (t == item) {
+                return array;
+            }
+        }
+
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = item;
+        return result;
+    }
+
+    private static <T> T[] arrayWithout(T[] array, T item) {
+        int index = -1;
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == item) {
+                index = i;
+                break;
+            }
+        }
+
+        if (index < 0) {
+            return array;
+        }
+
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private boolean hasOnItemClickListeners() {
+        return mOnItemClickListener != null || mOnItemClickListeners.length > 0;
+    }
+
+    /**
+     * Register a callback to be invoked when priority order of adapter positions changes.
+     *
+     * @param listener the callback that will run
+     * @see PriorityOrder
+     */
+    public void setOnPriorityOrderChangedListener(OnPriorityOrderChangedListener listener) {
+        mOnPriorityOrderChangedListener = listener;
+        invalidatePriorityOrder();
+    }
+
+    /**
+     * @return the callback to be invoked when priority order changes, or null if no callback
+     *         has been set
+     */
+    public OnPriorityOrderChangedListener getOnPriorityOrderChangedListener() {
+        return mOnPriorityOrderChangedListener;
+    }
+
+    /**
+     * Sets number of span groups beyond attached items which are included into priority order.
+     * These are positions about to enter the viewport.
+     *
+     * @param groups number of span groups on each side
+     */
+    public void setPriorityLookahead(int groups) {
+        mPriorityLookahead = Math.max(0, groups);
+        invalidatePriorityOrder();
+    }
+
+    /**
+     * Gets number of span groups beyond attached items which are included into priority order.
+     *
+     * @return number of span groups on each side
+     */
+    public int getPriorityLookahead() {
+        return mPriorityLookahead;
+    }
+
     /**
      * Get adapter position of item that is currently focused/selected.
      *
@@ -485,6 +1355,147 @@ public class DpadAwareRecyclerView extends RecyclerView implements
     public void setSelection(int adapterPosition) {
         scrollToPosition(adapterPosition);
         mPendingSelectionInt = adapterPosition;
+        mPendingSelectionId = NO_ID;
+    }
+
+    /**
+     * Binds key to page jump. Page jump moves selection by number of span groups keeping span
+     * index, with single {@link #scrollToPosition(int)} honoring camera offset, so that only
+     * destination items are laid out and bound. Works with {@link ExtGridLayoutManager} only.
+     *
+     * @param keyCode key code to bind
+     * @param forward true to jump towards end of adapter
+     * @param groups  number of span groups to jump by or
+     *                {@link ExtGridLayoutManager#PAGE_JUMP_VIEWPORT}
+     */
+    public void setPageJumpKey(int keyCode, boolean forward, int groups) {
+        if (groups < 0) {
+            throw new IllegalArgumentException("Number of span groups must not be negative");
+        }
+
+        mPageJumpKeys.put(keyCode, forward ? groups + 1 : -(groups + 1));
+    }
+
+    /**
+     * Unbinds key from page jump.
+     *
+     * @param keyCode key code to unbind
+     */
+    public void removePageJumpKey(int keyCode) {
+        mPageJumpKeys.delete(keyCode);
+    }
+
+    /**
+     * Binds page and channel keys to viewport page jumps: PAGE_DOWN, CHANNEL_DOWN and
+     * MEDIA_FAST_FORWARD jump forward, PAGE_UP, CHANNEL_UP and MEDIA_REWIND jump backward.
+     */
+    public void setDefaultPageJumpKeys() {
+        int viewport = ExtGridLayoutManager.PAGE_JUMP_VIEWPORT;
+        setPageJumpKey(KeyEvent.KEYCODE_PAGE_DOWN, true, viewport);
+        setPageJumpKey(KeyEvent.KEYCODE_CHANNEL_DOWN, true, viewport);
+        setPageJumpKey(KeyEvent.KEYCODE_MEDIA_FAST_FORWARD, true, viewport);
+        setPageJumpKey(KeyEvent.KEYCODE_PAGE_UP, false, viewport);
+        setPageJumpKey(KeyEvent.KEYCODE_CHANNEL_UP, false, viewport);
+        setPageJumpKey(KeyEvent.KEYCODE_MEDIA_REWIND, false, viewport);
+    }
+
+    /**
+     * Enables type-ahead: letters and digits typed while list has focus select item whose key
+     * starts with typed prefix. Keys consumed by focused child are not taken. Keys are indexed on background executor and index follows
+     * adapter changes incrementally, so that lookup is a binary search.
+     *
+     * @param provider provider of item keys or null to disable type-ahead
+     */
+    public void setTypeAheadKeyProvider(@Nullable TypeAheadKeyProvider provider) {
+        if (mTypeAheadIndex != null) {
+            mTypeAheadIndex.release();
+            mTypeAheadIndex = null;
+        }
+
+        mTypeAheadPrefix.setLength(0);
+
+        if (provider != null) {
+            mTypeAheadIndex = new TypeAheadIndex(provider);
+            Adapter adapter = getAdapter();
+            mTypeAheadIndex.rebuild(adapter != null ? adapter.getItemCount() : 0);
+        }
+    }
+
+    /**
+     * Sets executor which builds type-ahead index. Default is
+     * {@link android.os.AsyncTask#THREAD_POOL_EXECUTOR}. Should be called after
+     * {@link #setTypeAheadKeyProvider(TypeAheadKeyProvider)}.
+     *
+     * @param executor background executor
+     */
+    public void setTypeAheadExecutor(@NonNull Executor executor) {
+        if (mTypeAheadIndex == null) {
+            throw new IllegalStateException("Type-ahead is not enabled");
+        }
+
+        mTypeAheadIndex.setExecutor(executor);
+    }
+
+    /**
+     * Sets time after last typed character when typed prefix starts over.
+     *
+     * @param timeoutMs timeout in ms
+     */
+    public void setTypeAheadTimeout(long timeoutMs) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+
+        mTypeAheadTimeout = timeoutMs;
+    }
+
+    public long getTypeAheadTimeout() {
+        return mTypeAheadTimeout;
+    }
+
+    /**
+     * Finds best type-ahead match for prefix: item with smallest key starting with prefix.
+     * Case is ignored. Items which are not indexed yet can't be found.
+     *
+     * @param prefix key prefix
+     * @return adapter position or {@link #NO_POSITION} if nothing matches
+     */
+    public int findTypeAheadMatch(@NonNull String prefix) {
+        return mTypeAheadIndex != null ? mTypeAheadIndex.find(prefix) : NO_POSITION;
+    }
+
+    /**
+     * Sets section index of adapter. Index follows range notifications of adapter from now on.
+     *
+     * @param index section index or null
+     * @see SectionRail
+     */
+    public void setSectionIndex(@Nullable SectionIndex index) {
+        mSectionIndex = index;
+    }
+
+    @Nullable
+    public SectionIndex getSectionIndex() {
+        return mSectionIndex;
+    }
+
+    /**
+     * Sets acceleration profile of held navigation keys along main axis. Accelerated steps and
+     * continuous scrolling work with {@link ExtGridLayoutManager} only.
+     *
+     * @param profile acceleration profile or null to move by one span group per key repeat
+     */
+    public void setAccelerationProfile(@Nullable AccelerationProfile profile) {
+        mAccelerationProfile = profile;
+
+        if (profile == null && getLayoutManager() instanceof ExtGridLayoutManager) {
+            ((ExtGridLayoutManager) getLayoutManager()).stopContinuousScroll();
+        }
+    }
+
+    @Nullable
+    public AccelerationProfile getAccelerationProfile() {
+        return mAccelerationProfile;
     }
 
     /**
@@ -498,48 +1509,429 @@ public class DpadAwareRecyclerView extends RecyclerView implements
     }
 
     /**
-     * Set flag indicating that last focused view should be remembered in order to re-focus
-     * it in future.
+     * Set flag indicating that last focused view should be remembered in order to re-focus
+     * it in future.
+     *
+     * @param rememberLastFocus true to enable focus remembering, otherwise disable
+     */
+    public void setRememberLastFocus(boolean rememberLastFocus) {
+        mRememberLastFocus = rememberLastFocus;
+    }
+
+    /**
+     * Defines the choice behavior for the list. By default list does not have any choice
+     * behavior. In {@link #CHOICE_MODE_MULTIPLE} DPAD_CENTER toggles checked state of focused
+     * item before item click is dispatched.
+     * <p>
+     * Checked state is not applied to item views directly. Adapter should query
+     * {@link #isItemChecked(int)} on bind, and it is notified with {@link #PAYLOAD_CHECKED}
+     * payload when checked state of bound item changes.
+     *
+     * @param choiceMode {@link #CHOICE_MODE_NONE} or {@link #CHOICE_MODE_MULTIPLE}
+     */
+    public void setChoiceMode(@ChoiceMode int choiceMode) {
+        if (choiceMode != CHOICE_MODE_NONE && choiceMode != CHOICE_MODE_MULTIPLE) {
+            throw new IllegalArgumentException("Unknown choice mode: " + choiceMode);
+        }
+
+        if (choiceMode == CHOICE_MODE_NONE) {
+            clearChoices();
+        }
+
+        mChoiceMode = choiceMode;
+    }
+
+    @ChoiceMode
+    public int getChoiceMode() {
+        return mChoiceMode;
+    }
+
+    /**
+     * Sets checked state of item. Has no effect in {@link #CHOICE_MODE_NONE}.
+     *
+     * @param adapterPosition adapter position of item
+     * @param checked         new checked state
+     */
+    public void setItemChecked(int adapterPosition, boolean checked) {
+        Adapter adapter = getAdapter();
+        if (mChoiceMode == CHOICE_MODE_NONE || adapter == null) {
+            return;
+        }
+
+        if (adapterPosition < 0 || adapterPosition >= adapter.getItemCount()) {
+            throw new IndexOutOfBoundsException("Passed position is not in valid range which is"
+                    + " [0; " + adapter.getItemCount() + ").");
+        }
+
+        if (mCheckedItems.setChecked(adapter, adapterPosition, checked)) {
+            adapter.notifyItemChanged(adapterPosition, PAYLOAD_CHECKED);
+        }
+    }
+
+    /**
+     * @param adapterPosition adapter position of item
+     * @return true if item is checked
+     */
+    public boolean isItemChecked(int adapterPosition) {
+        return mChoiceMode != CHOICE_MODE_NONE && mCheckedItems.isChecked(adapterPosition);
+    }
+
+    /**
+     * @return number of checked items
+     */
+    public int getCheckedItemCount() {
+        return mCheckedItems.getCount();
+    }
+
+    /**
+     * @return adapter positions of checked items in ascending order
+     */
+    @NonNull
+    public int[] getCheckedItemPositions() {
+        return mCheckedItems.getPositions();
+    }
+
+    /**
+     * @return ids of checked items, empty if adapter has no stable ids
+     */
+    @NonNull
+    public long[] getCheckedItemIds() {
+        return mCheckedItems.getIds();
+    }
+
+    /**
+     * Unchecks all items.
+     */
+    public void clearChoices() {
+        int[] positions = mCheckedItems.getPositions();
+        mCheckedItems.clear();
+
+        Adapter adapter = getAdapter();
+        if (adapter == null) {
+            return;
+        }
+
+        // Notify contiguous runs at once
+        int runStart = 0;
+        for (int i = 1; i <= positions.length; i++) {
+            if (i == positions.length || positions[i] != positions[i - 1] + 1) {
+                adapter.notifyItemRangeChanged(positions[runStart], i - runStart,
+                        PAYLOAD_CHECKED);
+                runStart = i;
+            }
+        }
+    }
+
+    /**
+     * Sets store which keeps selected item across sessions. Selected item is put into store
+     * every time selector arrives at it. If store already has record for given keys, it is
+     * restored the same way as instance state, so call this before first layout. Instance state,
+     * if any, takes precedence.
+     *
+     * @param store     focus store or null to stop using it
+     * @param screenKey key of screen this view belongs to
+     * @param listKey   key of this view within screen
+     */
+    public void setFocusStore(@Nullable FocusStore store, @Nullable String screenKey,
+            @Nullable String listKey) {
+        if (store != null && (screenKey == null || listKey == null)) {
+            throw new IllegalArgumentException("Keys must be specified along with focus store");
+        }
+
+        mFocusStore = store;
+        mFocusStoreScreenKey = screenKey;
+        mFocusStoreListKey = listKey;
+
+        FocusStore.Record record = store != null ? store.get(screenKey, listKey) : null;
+        if (record != null) {
+            SavedState ss = new SavedState(AbsSavedState.EMPTY_STATE);
+            ss.mSelectedPosition = record.getPosition();
+            ss.mSelectedId = record.getStableId();
+            ss.mAnchorOffset = record.getScrollOffset();
+
+            mPendingSavedState = ss;
+            applyPendingSavedState();
+        }
+    }
+
+    @Nullable
+    public FocusStore getFocusStore() {
+        return mFocusStore;
+    }
+
+    /**
+     * Inflates view holders of given type on background thread and puts them into
+     * {@link RecycledViewPool} so first layout doesn't inflate them. Number of holders is
+     * derived from span count and viewport size. Adapter and layout manager must be set.
+     *
+     * @param viewType view type to inflate
+     * @see #prewarmViewHolders(int, int)
+     */
+    public void prewarmViewHolders(int viewType) {
+        prewarmViewHolders(viewType, 0);
+    }
+
+    /**
+     * Inflates view holders of given type on background thread and puts them into
+     * {@link RecycledViewPool} so first layout doesn't inflate them. Adapter and layout manager
+     * must be set. Adapter's {@link Adapter#onCreateViewHolder(ViewGroup, int)} must be safe to
+     * call from background thread. Pending holders are dropped if adapter changes. Pool caps are
+     * raised to fit holders only in default pool of this list, other pools keep their caps.
+     *
+     * @param viewType view type to inflate
+     * @param count    number of holders to inflate, 0 or less to derive it from span count and
+     *                 viewport size
+     */
+    public void prewarmViewHolders(int viewType, int count) {
+        mPrewarmer.prewarm(viewType, count);
+    }
+
+    /**
+     * Sets executor which inflates view holders for {@link #prewarmViewHolders(int, int)}.
+     * Default is {@link android.os.AsyncTask#THREAD_POOL_EXECUTOR}.
+     *
+     * @param executor background executor
+     */
+    public void setPrewarmExecutor(@NonNull Executor executor) {
+        mPrewarmer.setExecutor(executor);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        setDescendantFocusability(enabled ? FOCUS_BEFORE_DESCENDANTS : FOCUS_BLOCK_DESCENDANTS);
+        setFocusable(enabled);
+    }
+
+    @Override
+    public void setAdapter(@Nullable Adapter newAdapter) {
+        Adapter oldAdapter = getAdapter();
+        if (oldAdapter != null) {
+            oldAdapter.unregisterAdapterDataObserver(mDataObserver);
+        }
+
+        mPrewarmer.cancel();
+        mCheckedItems.clear();
+        super.setAdapter(newAdapter);
+
+        if (mTypeAheadIndex != null) {
+            mTypeAheadIndex.rebuild(newAdapter != null ? newAdapter.getItemCount() : 0);
+        }
+
+        if (newAdapter != null) {
+            newAdapter.registerAdapterDataObserver(mDataObserver);
+        }
+    }
+
+    @Override
+    public void setLayoutManager(LayoutManager layout) {
+        super.setLayoutManager(layout);
+        applyPendingSavedState();
+    }
+
+    @Override
+    public void setRecyclerListener(@Nullable RecyclerListener listener) {
+        // Light bind tracker stays installed and forwards to app listener
+        mRecyclerListener = listener;
+    }
+
+    @Override
+    public void setChildDrawingOrderCallback(@Nullable ChildDrawingOrderCallback callback) {
+        mChildDrawingOrderCallback = callback;
+
+        // Focus highlight keeps its own callback which chains to this one
+        if (mFocusHighlight == null) {
+            super.setChildDrawingOrderCallback(callback);
+        } else {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setRecycledViewPool(@Nullable RecycledViewPool pool) {
+        // Null brings back default pool of this list
+        mRecycledViewPoolSet = pool != null;
+        super.setRecycledViewPool(pool);
+    }
+
+    @Override
+    public void setItemViewCacheSize(int size) {
+        mItemViewCacheSize = size;
+        super.setItemViewCacheSize(size);
+    }
+
+    /**
+     * @return true if recycled view pool was set by app, so it may be shared with other lists
+     */
+    boolean isRecycledViewPoolSet() {
+        return mRecycledViewPoolSet;
+    }
+
+    /**
+     * Replaces default recycled view pool of this list. Pool is still considered default one.
+     */
+    void installRecycledViewPool(@NonNull RecycledViewPool pool) {
+        super.setRecycledViewPool(pool);
+    }
+
+    /**
+     * Sets item view cache size which is at least the one set by app.
+     *
+     * @param size desired size or 0 to restore size set by app
+     */
+    void tuneItemViewCacheSize(int size) {
+        super.setItemViewCacheSize(Math.max(mItemViewCacheSize, size));
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+
+        if (mPendingSavedState != null) {
+            // Never got to layout manager, pass it on as is
+            ss.mSelectedPosition = mPendingSavedState.mSelectedPosition;
+            ss.mSelectedId = mPendingSavedState.mSelectedId;
+            ss.mAnchorOffset = mPendingSavedState.mAnchorOffset;
+        } else if (mPendingSelectionInt != NO_POSITION) {
+            ss.mSelectedPosition = mPendingSelectionInt;
+            ss.mSelectedId = mPendingSelectionId;
+        } else {
+            View selected = getFocusedChild();
+
+            if (selected != null) {
+                ss.mSelectedPosition = getChildAdapterPosition(selected);
+                ss.mSelectedId = getChildItemId(selected);
+            } else {
+                ss.mSelectedPosition = mFocusArchivist.getLastSelectedPos();
+                ss.mSelectedId = mFocusArchivist.getLastSelectedId();
+
+                ViewHolder holder = findViewHolderForAdapterPosition(ss.mSelectedPosition);
+                selected = holder != null ? holder.itemView : null;
+            }
+
+            if (selected != null) {
+                ss.mAnchorOffset = computeAnchorOffset(selected);
+            }
+        }
+
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        mPendingSavedState = ss;
+        applyPendingSavedState();
+    }
+
+    private void applyPendingSavedState() {
+        if (mPendingSavedState == null || getLayoutManager() == null) {
+            return;
+        }
+
+        SavedState ss = mPendingSavedState;
+        mPendingSavedState = null;
+        restoreSelection(ss.mSelectedPosition, ss.mSelectedId, ss.mAnchorOffset);
+    }
+
+    /**
+     * Schedule selection of item so that next layout pass lands directly on it and focuses it.
+     * Must be called before that layout pass, otherwise it would simply relayout.
      *
-     * @param rememberLastFocus true to enable focus remembering, otherwise disable
+     * @param position     adapter position of item
+     * @param id           item id or {@link #NO_ID}
+     * @param anchorOffset offset of item from start edge (end edge in reversed layout) or
+     *                     {@link #NO_ANCHOR_OFFSET} to let layout manager decide
      */
-    public void setRememberLastFocus(boolean rememberLastFocus) {
-        mRememberLastFocus = rememberLastFocus;
-    }
+    private void restoreSelection(int position, long id, int anchorOffset) {
+        if (position == NO_POSITION) {
+            return;
+        }
 
-    @Override
-    public void setEnabled(boolean enabled) {
-        super.setEnabled(enabled);
-        setDescendantFocusability(enabled ? FOCUS_BEFORE_DESCENDANTS : FOCUS_BLOCK_DESCENDANTS);
-        setFocusable(enabled);
+        LayoutManager lm = getLayoutManager();
+        if (anchorOffset != NO_ANCHOR_OFFSET && lm instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) lm).scrollToPositionWithOffset(position, anchorOffset);
+        } else {
+            scrollToPosition(position);
+        }
+
+        mFocusArchivist.restoreFocus(position, id);
+        mPendingSelectionInt = position;
+        mPendingSelectionId = id;
     }
 
-    @Override
-    public void setAdapter(@Nullable Adapter newAdapter) {
-        Adapter oldAdapter = getAdapter();
-        if (oldAdapter != null) {
-            oldAdapter.unregisterAdapterDataObserver(mDataObserver);
+    /**
+     * Computes offset of child in terms of
+     * {@link LinearLayoutManager#scrollToPositionWithOffset(int, int)}.
+     *
+     * @param child laid out child
+     * @return offset or {@link #NO_ANCHOR_OFFSET} if layout manager is not linear
+     */
+    private int computeAnchorOffset(@NonNull View child) {
+        LayoutManager lm = getLayoutManager();
+        if (!(lm instanceof LinearLayoutManager)) {
+            return NO_ANCHOR_OFFSET;
         }
 
-        super.setAdapter(newAdapter);
+        LinearLayoutManager llm = (LinearLayoutManager) lm;
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
 
-        if (newAdapter != null) {
-            newAdapter.registerAdapterDataObserver(mDataObserver);
+        if (llm.getOrientation() == LinearLayoutManager.VERTICAL) {
+            return llm.getReverseLayout()
+                    ? getHeight() - getPaddingBottom()
+                            - (llm.getDecoratedBottom(child) + lp.bottomMargin)
+                    : llm.getDecoratedTop(child) - lp.topMargin - getPaddingTop();
         }
+
+        // Horizontal layout is additionally reversed in RTL
+        boolean rtl = ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+        return llm.getReverseLayout() != rtl
+                ? getWidth() - getPaddingRight() - (llm.getDecoratedRight(child) + lp.rightMargin)
+                : llm.getDecoratedLeft(child) - lp.leftMargin - getPaddingLeft();
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         super.onLayout(changed, l, t, r, b);
 
-        if (mPendingSelectionInt != NO_POSITION) {
-            setSelectionOnLayout(mPendingSelectionInt);
+        dispatchSelectedRebind();
+
+        // Keep pending selection until there are items to select
+        LayoutManager lm = getLayoutManager();
+        if (mPendingSelectionInt != NO_POSITION && lm != null && lm.getItemCount() > 0) {
+            setSelectionOnLayout(mPendingSelectionInt, mPendingSelectionId);
             mPendingSelectionInt = NO_POSITION;
+            mPendingSelectionId = NO_ID;
         }
+
+        invalidatePriorityOrder();
+    }
+
+    @Override
+    public void onScrolled(int dx, int dy) {
+        super.onScrolled(dx, dy);
+
+        invalidatePriorityOrder();
     }
 
-    private void setSelectionOnLayout(int position) {
-        RecyclerView.ViewHolder holder = findViewHolderForAdapterPosition(position);
+    private void setSelectionOnLayout(int position, long id) {
+        RecyclerView.ViewHolder holder = null;
+
+        Adapter adapter = getAdapter();
+        if (id != NO_ID && adapter != null && adapter.hasStableIds()) {
+            holder = findViewHolderForItemId(id);
+        }
+
+        if (holder == null) {
+            holder = findViewHolderForAdapterPosition(position);
+        }
 
         if (holder != null) {
             if (hasFocus()) {
@@ -556,6 +1948,10 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         ViewTreeObserver obs = getViewTreeObserver();
         obs.addOnGlobalFocusChangeListener(this);
+
+        if (mSelectorHost != null) {
+            mSelectorHost.registerList(this);
+        }
     }
 
     @Override
@@ -564,6 +1960,22 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
         ViewTreeObserver obs = getViewTreeObserver();
         obs.removeOnGlobalFocusChangeListener(this);
+
+        // Detached rows, e.g. recycled nested lists, must not be held by host
+        if (mSelectorHost != null) {
+            mSelectorHost.unregisterList(this);
+        }
+
+        interruptNavigation();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+
+        if (!hasWindowFocus) {
+            interruptNavigation();
+        }
     }
 
     @Override
@@ -572,12 +1984,21 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         // So we actually can't enforce selectors visibility solely by placing this
         // in onFocusChanged(). Hence we handle it this way.
         enforceSelectorsVisibility(isInTouchMode(), hasFocus());
+
+        if (!hasFocus()) {
+            retargetFocusHighlight(null);
+            interruptNavigation();
+        }
     }
 
     @Override
     protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
         super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
 
+        if (!gainFocus && !hasFocus()) {
+            interruptNavigation();
+        }
+
         if (gainFocus) {
             // We favor natural focus if we don't want to remember focus AND if previously focused
             // rectangle is NOT null. Usually latter condition holds true if simple requestFocus()
@@ -617,9 +2038,69 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         super.requestChildFocus(child, focused);
 
         requestChildFocusInner(child, focused);
+        updateNavigationDirection(child);
         fireOnItemFocusedEvent(child);
     }
 
+    private void updateNavigationDirection(View child) {
+        int position = getChildAdapterPosition(child);
+        if (position == NO_POSITION) {
+            return;
+        }
+
+        if (mLastFocusedPosition != NO_POSITION && mLastFocusedPosition != position) {
+            LayoutManager lm = getLayoutManager();
+            mGroupDirection = Integer.signum(GridGeometry.getSpanGroupIndex(lm, position)
+                    - GridGeometry.getSpanGroupIndex(lm, mLastFocusedPosition));
+            mSpanDirection = Integer.signum(GridGeometry.getSpanIndex(lm, position)
+                    - GridGeometry.getSpanIndex(lm, mLastFocusedPosition));
+        }
+
+        mLastFocusedPosition = position;
+        invalidatePriorityOrder();
+    }
+
+    private void invalidatePriorityOrder() {
+        if (mOnPriorityOrderChangedListener != null && !mPriorityUpdatePosted) {
+            mPriorityUpdatePosted = true;
+            postOnAnimation(mPriorityUpdateRunnable);
+        }
+    }
+
+    private void dispatchPriorityOrderChanged() {
+        LayoutManager lm = getLayoutManager();
+        int childCount = getChildCount();
+        if (mOnPriorityOrderChangedListener == null || lm == null || childCount == 0) {
+            return;
+        }
+
+        int first = Integer.MAX_VALUE;
+        int last = NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            int position = getChildAdapterPosition(getChildAt(i));
+            if (position != NO_POSITION) {
+                first = Math.min(first, position);
+                last = Math.max(last, position);
+            }
+        }
+
+        if (last == NO_POSITION) {
+            return;
+        }
+
+        int selectedPosition = getSelectedItemPosition();
+        if (selectedPosition == NO_POSITION) {
+            selectedPosition = first;
+        }
+
+        int lookahead = mPriorityLookahead * GridGeometry.getSpanCount(lm);
+        first = Math.max(0, first - lookahead);
+        last = Math.min(lm.getItemCount() - 1, last + lookahead);
+
+        mPriorityOrder.update(lm, selectedPosition, first, last, mGroupDirection, mSpanDirection);
+        mOnPriorityOrderChangedListener.onPriorityOrderChanged(this, mPriorityOrder);
+    }
+
     @Override
     public void onScrollStateChanged(int state) {
         super.onScrollStateChanged(state);
@@ -629,86 +2110,196 @@ public class DpadAwareRecyclerView extends RecyclerView implements
             if (focusedChild != null) {
                 requestChildFocusInner(focusedChild, focusedChild);
             }
+
+            scheduleFullBindIfSettled();
         }
     }
 
-    private void requestChildFocusInner(View child, @NonNull View focused) {
-        // Try to find first non-null selector to take it as an anchor.
-        Drawable refSelector = null;
-        for (Drawable selector : mSelectorDrawables) {
-            if (selector != null) {
-                refSelector = selector;
-                break;
+    private void scheduleFullBindIfSettled() {
+        if (!mLightBoundHolders.isEmpty() && !isNavigationInProgress()) {
+            // Adapter can't be notified in the middle of layout or scroll
+            removeCallbacks(mFullBindRunnable);
+            post(mFullBindRunnable);
+        }
+    }
+
+    private void dispatchFullBind() {
+        Adapter adapter = getAdapter();
+        if (adapter == null || isNavigationInProgress()) {
+            // Will be rescheduled when navigation settles
+            return;
+        }
+
+        // Holders removed by pending updates have no position
+        for (ViewHolder holder : mLightBoundHolders) {
+            int position = holder.getAdapterPosition();
+            if (position != NO_POSITION) {
+                adapter.notifyItemChanged(position, PAYLOAD_FULL_BIND);
             }
         }
+        mLightBoundHolders.clear();
+    }
 
+    private void requestChildFocusInner(View child, @NonNull View focused) {
         int scrollState = getScrollState();
 
-        if (refSelector != null && scrollState == SCROLL_STATE_IDLE) {
-            mSelectorSourceRect.set(refSelector.getBounds());
+        int layerCount = mSelectorHost != null
+                ? mSelectorHost.getSelectorLayerCount()
+                : mFloatingSelector.getLayerCount();
 
+        if (layerCount > 0 && scrollState == SCROLL_STATE_IDLE) {
             // Focused cannot be null
-            focused.getHitRect(mSelectorDestRect);
+            getSelectorDestRect(child, focused, mSelectorDestRect);
 
             mReusableSelectListener.mToSelect = child;
             mReusableSelectListener.mToDeselect = mFocusArchivist.getLastFocus(this);
 
-            animateSelectorChange(mReusableSelectListener);
+            animateSelectorChange();
 
             mFocusArchivist.archiveFocus(this, child);
         }
+
+        retargetFocusHighlight(child);
+    }
+
+    /**
+     * Gets bounds which focused view will have once focus highlight settles, so that selector
+     * and highlight arrive together regardless of current level of highlight.
+     *
+     * @param child   item view containing focused view
+     * @param focused focused view
+     * @param outRect bounds in list coordinates
+     */
+    private void getSelectorDestRect(@NonNull View child, @NonNull View focused,
+            @NonNull Rect outRect) {
+        float scale = mFocusHighlight != null && focused == child
+                ? mFocusHighlight.getScale()
+                : 1f;
+
+        float left = focused.getLeft() + focused.getTranslationX();
+        float top = focused.getTop() + focused.getTranslationY();
+        float pivotX = focused.getPivotX();
+        float pivotY = focused.getPivotY();
+
+        outRect.set(
+                Math.round(left + pivotX * (1f - scale)),
+                Math.round(top + pivotY * (1f - scale)),
+                Math.round(left + pivotX + (focused.getWidth() - pivotX) * scale),
+                Math.round(top + pivotY + (focused.getHeight() - pivotY) * scale));
+    }
+
+    /**
+     * Moves focus highlight to another item. Items keep their current levels, so highlight
+     * doesn't jump when focus changes during flight.
+     *
+     * @param child item to highlight or null to highlight nothing
+     */
+    private void retargetFocusHighlight(@Nullable View child) {
+        if (mFocusHighlight == null || child == mHighlightIn) {
+            return;
+        }
+
+        if (mHighlightOut != null && mHighlightOut != child) {
+            mFocusHighlight.apply(mHighlightOut, 0f);
+        }
+
+        float childLevel = child != null && child == mHighlightOut ? mHighlightOutLevel : 0f;
+
+        mHighlightOut = mHighlightIn;
+        mHighlightOutFrom = mHighlightOutLevel = mHighlightInLevel;
+        mHighlightIn = child;
+        mHighlightInFrom = mHighlightInLevel = childLevel;
+
+        updateFocusHighlight(isSelectorMoving() ? getSelectorProgress() : 1f);
+        invalidate();
+    }
+
+    private void updateFocusHighlight(float progress) {
+        if (mFocusHighlight == null) {
+            return;
+        }
+
+        if (mHighlightIn != null) {
+            mHighlightInLevel = mHighlightInFrom + (1f - mHighlightInFrom) * progress;
+            mFocusHighlight.apply(mHighlightIn, mHighlightInLevel);
+        }
+
+        if (mHighlightOut != null) {
+            mHighlightOutLevel = mHighlightOutFrom * (1f - progress);
+            mFocusHighlight.apply(mHighlightOut, mHighlightOutLevel);
+
+            if (progress >= 1f) {
+                mHighlightOut = null;
+            }
+        }
+    }
+
+    private float getHighlightLevel(View child) {
+        if (child == mHighlightIn) {
+            return mHighlightInLevel;
+        } else if (child == mHighlightOut) {
+            return mHighlightOutLevel;
+        }
+
+        return 0f;
+    }
+
+    private int getAppDrawingOrder(int childCount, int i) {
+        return mChildDrawingOrderCallback != null
+                ? mChildDrawingOrderCallback.onGetChildDrawingOrder(childCount, i)
+                : i;
     }
 
     @Override
     public void onDraw(@NonNull Canvas canvas) {
-        drawSelectorIfVisible(BACKGROUND, canvas);
+        if (mSelectorHost == null) {
+            mFloatingSelector.draw(canvas, SelectorLayer.Z_BELOW_CHILDREN);
+        }
 
         super.onDraw(canvas);
-
-        drawSelectorIfVisible(FOREGROUND, canvas);
     }
 
-    private void drawSelectorIfVisible(@Selector int index, Canvas canvas) {
-        enforceSelectorIndexBounds(index);
+    @Override
+    protected void dispatchDraw(@NonNull Canvas canvas) {
+        dispatchSelectedRebind();
+
+        super.dispatchDraw(canvas);
 
-        Drawable selector = mSelectorDrawables[index];
-        if (selector != null && selector.isVisible()) {
-            selector.draw(canvas);
+        if (mSelectorHost == null) {
+            mFloatingSelector.draw(canvas, SelectorLayer.Z_ABOVE_CHILDREN);
         }
     }
 
     /**
      * Animates selector when changes happen.
      */
-    private void animateSelectorChange(Animator.AnimatorListener listener) {
-        if (mSelectorAnimator != null) {
-            mSelectorAnimator.cancel();
-        }
-
-        mSelectorAnimator = new AnimatorSet();
-
-        for (int i = 0; i < SELECTOR_COUNT; i++) {
-            mSelectorAnimator.playTogether(mSelectorAnimators[i]);
+    private void animateSelectorChange() {
+        if (mSelectorHost != null) {
+            mSelectorHost.moveSelector(this, mSelectorDestRect, mReusableSelectListener);
+            return;
         }
 
-        mSelectorAnimator.setInterpolator(mTransitionInterpolator);
-        mSelectorAnimator.addListener(listener);
-
         int duration = 0;
         if (mSelectorVelocity > 0) {
+            mFloatingSelector.getCurrentRect(mSelectorSourceRect);
             int dx = mSelectorDestRect.centerX() - mSelectorSourceRect.centerX();
             int dy = mSelectorDestRect.centerY() - mSelectorSourceRect.centerY();
             duration = computeTravelDuration(dx, dy, mSelectorVelocity);
         }
 
-        mSelectorAnimator.setDuration(duration);
-        mSelectorAnimator.start();
+        mFloatingSelector.moveTo(mSelectorDestRect, duration);
+    }
+
+    private boolean isSelectorMoving() {
+        return mSelectorHost != null
+                ? mSelectorHost.isSelectorMoving(this)
+                : mFloatingSelector.isMoving();
     }
 
-    private Animator createSelectorAnimator(@Nullable Drawable selector) {
-        return ObjectAnimator.ofObject(
-                selector, BOUNDS_PROP, new RectEvaluator(),
-                mSelectorSourceRect, mSelectorDestRect);
+    private float getSelectorProgress() {
+        return mSelectorHost != null
+                ? mSelectorHost.getSelectorProgress()
+                : mFloatingSelector.getProgress();
     }
 
     private int computeTravelDuration(int dx, int dy, int velocity) {
@@ -717,12 +2308,7 @@ public class DpadAwareRecyclerView extends RecyclerView implements
 
     private void enforceSelectorsVisibility(boolean isInTouchMode, boolean hasFocus) {
         boolean visible = !isInTouchMode && hasFocus;
-
-        for (Drawable selector : mSelectorDrawables) {
-            if (selector != null) {
-                selector.setVisible(visible, false);
-            }
-        }
+        mFloatingSelector.setVisible(visible);
     }
 
     @Nullable
@@ -734,28 +2320,121 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         }
     }
 
-    private void setSelectorCallback(@Nullable Drawable selector) {
-        if (selector != null) {
-            selector.setCallback(mSelectorCallback);
-        }
-    }
-
     private void childSetSelected(@NonNull View child, boolean selected) {
-        child.setSelected(selected);
+        if (mSelectedStateMode == SELECTED_STATE_HOLDER) {
+            if (selected) {
+                mSelectedChild = child;
+            } else if (child == mSelectedChild) {
+                mSelectedChild = null;
+            }
+
+            postSelectedStateUpdate();
+        } else {
+            child.setSelected(selected);
+        }
 
         if (selected) {
             fireOnItemSelectedEvent(child);
         }
     }
 
+    private void postSelectedStateUpdate() {
+        if (!mSelectedStateUpdatePosted) {
+            mSelectedStateUpdatePosted = true;
+            postOnAnimation(mSelectedStateUpdateRunnable);
+        }
+    }
+
+    /**
+     * Notifies holders about selection changes accumulated during the frame.
+     */
+    private void dispatchSelectedStateChanged() {
+        if (mSelectedStateMode != SELECTED_STATE_HOLDER
+                || mNotifiedSelectedChild == mSelectedChild) {
+            return;
+        }
+
+        if (mNotifiedSelectedChild != null) {
+            notifyHolderSelected(mNotifiedSelectedChild, false);
+        }
+
+        if (mSelectedChild != null) {
+            notifyHolderSelected(mSelectedChild, true);
+        }
+
+        mNotifiedSelectedChild = mSelectedChild;
+    }
+
+    /**
+     * Notifies selected holder again if it was rebound in place, since bind resets its state.
+     * Updates are applied either in layout or before scroll, so draw is the latest point.
+     */
+    private void dispatchSelectedRebind() {
+        if (!mSelectedRebindPending || hasPendingAdapterUpdates()) {
+            return;
+        }
+
+        mSelectedRebindPending = false;
+        if (mNotifiedSelectedChild != null) {
+            notifyHolderSelected(mNotifiedSelectedChild, true);
+        }
+    }
+
+    private void notifyHolderSelected(@NonNull View child, boolean selected) {
+        if (child.getParent() != this) {
+            return;
+        }
+
+        ViewHolder holder = getChildViewHolder(child);
+        if (holder instanceof SelectableViewHolder) {
+            ((SelectableViewHolder) holder).onSelectedStateChanged(selected);
+        }
+    }
+
     @Override
     public boolean dispatchKeyEvent(@NonNull KeyEvent event) {
+        int pageJump = mPageJumpKeys.get(event.getKeyCode());
+        if (pageJump != 0 && handlePageJump(event, pageJump > 0, Math.abs(pageJump) - 1)) {
+            return true;
+        }
+
+        if (isDirectionalKey(event.getKeyCode())) {
+            if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() > 0) {
+                mNavigationKeyHeld = true;
+            } else if (event.getAction() == KeyEvent.ACTION_UP) {
+                releaseNavigationKey();
+            }
+
+            if (mAccelerationProfile != null && handleAcceleratedKey(event)) {
+                return true;
+            }
+        }
+
         boolean consumed = super.dispatchKeyEvent(event);
 
+        // Focused children, e.g. inline text fields, get typed characters first
+        if (!consumed
+                && mTypeAheadIndex != null
+                && event.getAction() == KeyEvent.ACTION_DOWN
+                && handleTypeAhead(event)) {
+            return true;
+        }
+
         View focusedChild = getFocusedChild();
 
         if (focusedChild != null
-                && mOnItemClickListener != null
+                && mChoiceMode == CHOICE_MODE_MULTIPLE
+                && event.getAction() == KeyEvent.ACTION_DOWN
+                && event.getKeyCode() == KeyEvent.KEYCODE_DPAD_CENTER
+                && event.getRepeatCount() == 0) {
+            int position = getChildAdapterPosition(focusedChild);
+            if (position != NO_POSITION) {
+                setItemChecked(position, !isItemChecked(position));
+            }
+        }
+
+        if (focusedChild != null
+                && hasOnItemClickListeners()
                 && event.getAction() == KeyEvent.ACTION_DOWN
                 && event.getKeyCode() == KeyEvent.KEYCODE_DPAD_CENTER
                 && event.getRepeatCount() == 0) {
@@ -764,11 +2443,153 @@ public class DpadAwareRecyclerView extends RecyclerView implements
         return consumed;
     }
 
+    /**
+     * Performs page jump on key down. Key up is consumed too if jump is possible at all.
+     *
+     * @return true if event is consumed
+     */
+    private boolean handlePageJump(KeyEvent event, boolean forward, int groups) {
+        LayoutManager lm = getLayoutManager();
+        View focusedChild = getFocusedChild();
+
+        if (!(lm instanceof ExtGridLayoutManager) || focusedChild == null) {
+            return false;
+        }
+
+        if (event.getAction() != KeyEvent.ACTION_DOWN) {
+            return true;
+        }
+
+        int position = getChildAdapterPosition(focusedChild);
+        int target = ((ExtGridLayoutManager) lm).findPageJumpTarget(position, forward, groups);
+
+        if (target != NO_POSITION && target != position) {
+            setSelection(target);
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends character typed with key down to type-ahead prefix and selects best match. Called
+     * only for keys focused child didn't consume.
+     *
+     * @return true if event is consumed
+     */
+    private boolean handleTypeAhead(KeyEvent event) {
+        int ch = event.getUnicodeChar();
+        if (ch == 0 || getFocusedChild() == null) {
+            return false;
+        }
+
+        boolean expired = event.getEventTime() - mTypeAheadLastTime > mTypeAheadTimeout;
+        if (expired) {
+            mTypeAheadPrefix.setLength(0);
+        }
+
+        // Space continues prefix only, otherwise it may be a click
+        if (!Character.isLetterOrDigit(ch) && (ch != ' ' || mTypeAheadPrefix.length() == 0)) {
+            return false;
+        }
+
+        mTypeAheadPrefix.appendCodePoint(ch);
+        mTypeAheadLastTime = event.getEventTime();
+
+        int position = mTypeAheadIndex.find(mTypeAheadPrefix.toString());
+        if (position != NO_POSITION && position != getSelectedItemPosition()) {
+            setSelection(position);
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves selection by accelerated step or scrolls continuously while navigation key is held.
+     *
+     * @return true if event is consumed
+     */
+    private boolean handleAcceleratedKey(KeyEvent event) {
+        LayoutManager lm = getLayoutManager();
+        if (!(lm instanceof ExtGridLayoutManager)) {
+            return false;
+        }
+
+        ExtGridLayoutManager glm = (ExtGridLayoutManager) lm;
+
+        if (event.getAction() == KeyEvent.ACTION_UP) {
+            if (glm.isContinuousScrolling()) {
+                glm.stopContinuousScroll();
+                return true;
+            }
+
+            return false;
+        }
+
+        View focusedChild = getFocusedChild();
+        if (event.getRepeatCount() == 0 || focusedChild == null) {
+            return false;
+        }
+
+        // Down or right key scrolls towards bottom or right side of content
+        int keyCode = event.getKeyCode();
+        boolean vertical = glm.getOrientation() == VERTICAL;
+        boolean towardsEnd;
+        if (vertical && (keyCode == KeyEvent.KEYCODE_DPAD_DOWN
+                || keyCode == KeyEvent.KEYCODE_DPAD_UP)) {
+            towardsEnd = keyCode == KeyEvent.KEYCODE_DPAD_DOWN;
+        } else if (!vertical && (keyCode == KeyEvent.KEYCODE_DPAD_RIGHT
+                || keyCode == KeyEvent.KEYCODE_DPAD_LEFT)) {
+            towardsEnd = keyCode == KeyEvent.KEYCODE_DPAD_RIGHT;
+        } else {
+            return false;
+        }
+
+        long holdTime = event.getEventTime() - event.getDownTime();
+
+        if (mAccelerationProfile.isContinuous(holdTime)) {
+            float speed = mAccelerationProfile.getContinuousSpeed();
+            glm.startContinuousScroll(towardsEnd ? speed : -speed);
+            return true;
+        }
+
+        int groups = mAccelerationProfile.getStepGroups(holdTime);
+        if (groups <= 1) {
+            return false;
+        }
+
+        // Adapter order runs the other way in reversed and horizontal RTL layouts
+        boolean rtl = !vertical
+                && ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+        boolean forward = towardsEnd != (glm.getReverseLayout() != rtl);
+
+        int position = getChildAdapterPosition(focusedChild);
+        int target = glm.findPageJumpTarget(position, forward, groups);
+        if (target == NO_POSITION || target == position) {
+            return true;
+        }
+
+        View targetView = glm.findViewByPosition(target);
+        if (targetView != null) {
+            targetView.requestFocus();
+        } else {
+            setSelection(target);
+        }
+
+        return true;
+    }
+
+    private static boolean isDirectionalKey(int keyCode) {
+        return keyCode == KeyEvent.KEYCODE_DPAD_UP
+                || keyCode == KeyEvent.KEYCODE_DPAD_DOWN
+                || keyCode == KeyEvent.KEYCODE_DPAD_LEFT
+                || keyCode == KeyEvent.KEYCODE_DPAD_RIGHT;
+    }
+
     @Override
     public void addView(@NonNull View child, int index, ViewGroup.LayoutParams params) {
         super.addView(child, index, params);
 
-        if (mOnItemClickListener != null) {
+        if (hasOnItemClickListeners()) {
             child.setClickable(true);
         }
     }
@@ -789,26 +2610,64 @@ public class DpadAwareRecyclerView extends RecyclerView implements
     }
 
     private void fireOnItemClickEvent(View child) {
-        if (mOnItemClickListener != null) {
-            int position = getChildAdapterPosition(child);
-            long id = getChildItemId(child);
-            mOnItemClickListener.onItemClick(this, child, position, id);
+        OnItemClickListener listener = mOnItemClickListener;
+        OnItemClickListener[] listeners = mOnItemClickListeners;
+        if (listener == null && listeners.length == 0) {
+            return;
+        }
+
+        int position = getChildAdapterPosition(child);
+        long id = getChildItemId(child);
+
+        if (listener != null) {
+            listener.onItemClick(this, child, position, id);
+        }
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onItemClick(this, child, position, id);
         }
     }
 
     private void fireOnItemFocusedEvent(View child) {
-        if (mOnItemSelectedListener != null) {
-            int position = getChildAdapterPosition(child);
-            long id = getChildItemId(child);
-            mOnItemSelectedListener.onItemFocused(this, child, position, id);
+        OnItemSelectedListener listener = mOnItemSelectedListener;
+        OnItemSelectedListener[] listeners = mOnItemSelectedListeners;
+        if (listener == null && listeners.length == 0) {
+            return;
+        }
+
+        int position = getChildAdapterPosition(child);
+        long id = getChildItemId(child);
+
+        if (listener != null) {
+            listener.onItemFocused(this, child, position, id);
+        }
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onItemFocused(this, child, position, id);
         }
     }
 
     private void fireOnItemSelectedEvent(View child) {
-        if (mOnItemSelectedListener != null) {
-            int position = getChildAdapterPosition(child);
-            long id = getChildItemId(child);
-            mOnItemSelectedListener.onItemSelected(this, child, position, id);
+        OnItemSelectedListener listener = mOnItemSelectedListener;
+        OnItemSelectedListener[] listeners = mOnItemSelectedListeners;
+        if (listener == null && listeners.length == 0 && mFocusStore == null) {
+            return;
+        }
+
+        int position = getChildAdapterPosition(child);
+        long id = getChildItemId(child);
+
+        if (listener != null) {
+            listener.onItemSelected(this, child, position, id);
+        }
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onItemSelected(this, child, position, id);
+        }
+
+        if (mFocusStore != null && position != NO_POSITION) {
+            mFocusStore.put(mFocusStoreScreenKey, mFocusStoreListKey,
+                    new FocusStore.Record(id, position, computeAnchorOffset(child)));
         }
     }
 }
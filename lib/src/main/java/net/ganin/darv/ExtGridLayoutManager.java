@@ -23,11 +23,15 @@ import android.support.annotation.FloatRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearSmoothScroller;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.View;
 
 import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Extended {@link GridLayoutManager}.
@@ -38,15 +42,39 @@ import java.lang.ref.WeakReference;
  * <li>Circular navigation.</li>
  * <li>AUTO_FIT support similar to GridView.</li>
  * <li>Controlling 'arrow' views (any views really) indicating begin or end is reached.</li>
+ * <li>Uniform item mode with arithmetic span and scroll computations.</li>
+ * <li>Pluggable scroll alignment policy.</li>
  * </ul>
  */
 public class ExtGridLayoutManager extends GridLayoutManager {
 
     public static final int AUTO_FIT = 0;
+    /**
+     * Page jump distance meaning number of span groups which fit into viewport.
+     *
+     * @see #findPageJumpTarget(int, boolean, int)
+     */
+    public static final int PAGE_JUMP_VIEWPORT = 0;
+    /**
+     * Default number of span groups retained behind focus.
+     */
+    public static final int DEFAULT_RETAINED_SPAN_GROUPS = 1;
+
+    /**
+     * Default maximum number of views retained behind focus.
+     */
+    public static final int DEFAULT_RETAINED_VIEW_BUDGET = 32;
+
     private static final int DO_NOT_FOCUS = -1;
     private static final int FIRST = -2;
     private static final int LAST = -3;
 
+    /**
+     * Longest frame time taken into account by continuous scrolling, so that it doesn't leap
+     * after stall.
+     */
+    private static final long CONTINUOUS_SCROLL_MAX_FRAME_NANOS = 50000000L;
+
     /**
      * Builder for {@link ExtGridLayoutManager}.
      */
@@ -65,6 +93,10 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         @Nullable
         private View mArrowTowardEnd;
         private int mSpanSize = 0;
+        private boolean mUniformItems = false;
+        @Nullable
+        private ScrollAlignment mScrollAlignment;
+        private boolean mAdaptiveRecycling = false;
 
         public Builder(Context ctx) {
             mCtx = ctx;
@@ -191,6 +223,47 @@ public class ExtGridLayoutManager extends GridLayoutManager {
             return spanSizePx(mCtx.getResources().getDimensionPixelSize(spanSizeRes));
         }
 
+        /**
+         * Declare that all items have the same size and occupy one span each. Span groups,
+         * scroll range and offset, and camera positions are then computed arithmetically from
+         * one measured item instead of per-child bookkeeping. Custom
+         * {@link GridLayoutManager.SpanSizeLookup} is not used in this mode.
+         *
+         * @param uniformItems if true, enable uniform item mode
+         * @return This builder instance for chaining.
+         */
+        @NonNull
+        public Builder uniformItems(boolean uniformItems) {
+            mUniformItems = uniformItems;
+            return this;
+        }
+
+        /**
+         * Set policy which places selected item along main axis. Takes precedence over offset
+         * fraction.
+         *
+         * @param scrollAlignment alignment policy
+         * @return This builder instance for chaining.
+         */
+        @NonNull
+        public Builder scrollAlignment(@Nullable ScrollAlignment scrollAlignment) {
+            mScrollAlignment = scrollAlignment;
+            return this;
+        }
+
+        /**
+         * Size recycled view pool and item view cache of RecyclerView from grid geometry.
+         *
+         * @param adaptiveRecycling if true, enable adaptive recycling
+         * @return This builder instance for chaining.
+         * @see ExtGridLayoutManager#setAdaptiveRecycling(boolean)
+         */
+        @NonNull
+        public Builder adaptiveRecycling(boolean adaptiveRecycling) {
+            mAdaptiveRecycling = adaptiveRecycling;
+            return this;
+        }
+
         /**
          * Build this adapter into {@link ExtGridLayoutManager} instance.
          *
@@ -210,6 +283,9 @@ public class ExtGridLayoutManager extends GridLayoutManager {
             inst.setArrowTowardBegin(mArrowTowardBegin);
             inst.setArrowTowardEnd(mArrowTowardEnd);
             inst.setSpanSizePx(mSpanSize);
+            inst.setUniformItems(mUniformItems);
+            inst.setScrollAlignment(mScrollAlignment);
+            inst.setAdaptiveRecycling(mAdaptiveRecycling);
             return inst;
         }
     }
@@ -230,6 +306,130 @@ public class ExtGridLayoutManager extends GridLayoutManager {
 
     private int mPendingChildPositionToFocus = DO_NOT_FOCUS;
 
+    /**
+     * Span size lookup of uniform item mode. Unlike {@link DefaultSpanSizeLookup} it computes
+     * span group index without iterating over preceding positions.
+     */
+    private static final class UniformSpanSizeLookup extends SpanSizeLookup {
+
+        @Override
+        public int getSpanSize(int position) {
+            return 1;
+        }
+
+        @Override
+        public int getSpanIndex(int position, int spanCount) {
+            return position % spanCount;
+        }
+
+        @Override
+        public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+            return adapterPosition / spanCount;
+        }
+    }
+
+    private boolean mUniformItems = false;
+    /**
+     * Span size lookup which uniform item mode set aside, restored when the mode is disabled.
+     */
+    @Nullable
+    private SpanSizeLookup mSavedSpanSizeLookup;
+
+    /* Uniform item measurements. Zero if not measured yet. */
+    private int mItemMeasuredWidth;
+    private int mItemMeasuredHeight;
+    /**
+     * Distance between starts of two adjacent span groups along main axis.
+     */
+    private int mUniformItemPitch;
+    /**
+     * Distance from start of decorated item with margins to start of item view along main axis.
+     */
+    private int mUniformItemInset;
+
+    @Nullable
+    private ScrollAlignment mScrollAlignment;
+
+    private boolean mAdaptiveRecycling = false;
+    /* Geometry recycling was last tuned for. Zero if not tuned yet. */
+    private int mTunedSpanCount;
+    private int mTunedSpanGroups;
+
+    /* Retention attributes */
+    private int mRetainedSpanGroups = DEFAULT_RETAINED_SPAN_GROUPS;
+    private int mRetainedViewBudget = DEFAULT_RETAINED_VIEW_BUDGET;
+    /**
+     * Holders detached from window which are not known to be put into pool, i.e. which can be
+     * attached back from item view cache without rebind. Tracked only while pool reports pooled
+     * holders. Held weakly, since holders dropped without pooling are never reported.
+     */
+    private final Set<RecyclerView.ViewHolder> mRetainedHolders =
+            Collections.newSetFromMap(new WeakHashMap<RecyclerView.ViewHolder, Boolean>());
+    /* Pool which reports pooled holders to this layout manager, null if there is none */
+    @Nullable
+    private AdaptiveRecycledViewPool mListenedPool;
+    private int mLastFocusGroup = RecyclerView.NO_POSITION;
+    private int mLastGroupDirection = 0;
+    /* Focus has just turned back and views it brings in are being checked */
+    private boolean mReversalPending = false;
+    private boolean mReversalRebound = false;
+    private int mReversalCount = 0;
+    private int mReversalCacheHitCount = 0;
+    /* Retention attributes */
+
+    private final RecyclerView.OnChildAttachStateChangeListener mRetentionListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    RecyclerView rv = mRecyclerView;
+                    if (rv == null || !isRetentionTracked()) {
+                        return;
+                    }
+
+                    boolean retained = mRetainedHolders.remove(rv.getChildViewHolder(view));
+                    if (mReversalPending && !retained) {
+                        mReversalRebound = true;
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    RecyclerView rv = mRecyclerView;
+                    if (rv != null && isRetentionTracked()) {
+                        mRetainedHolders.add(rv.getChildViewHolder(view));
+                    }
+                }
+            };
+
+    private final AdaptiveRecycledViewPool.OnViewPooledListener mPooledListener =
+            new AdaptiveRecycledViewPool.OnViewPooledListener() {
+                @Override
+                public void onViewPooled(@NonNull RecyclerView.ViewHolder holder) {
+                    mRetainedHolders.remove(holder);
+                }
+            };
+
+    @Nullable
+    private RecyclerView mRecyclerView;
+
+    /* Continuous scrolling state. Velocity is zero if it is not running. */
+    private float mContinuousVelocity;
+    private long mContinuousFrameTime;
+    private float mContinuousRemainder;
+    private int mContinuousSpanIndex;
+    /**
+     * Line along main axis which focused item follows during continuous scrolling.
+     */
+    private int mContinuousFocusLine;
+    private boolean mContinuousFocusChanging = false;
+
+    private final Runnable mContinuousScrollFrame = new Runnable() {
+        @Override
+        public void run() {
+            doContinuousScrollFrame();
+        }
+    };
+
     public ExtGridLayoutManager(Context context, AttributeSet attrs, int defStyleAttr,
             int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
@@ -293,6 +493,183 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         mSpanSize = spanSizePx;
     }
 
+    public int getSpanSizePx() {
+        return mSpanSize;
+    }
+
+    /**
+     * @return true if span count is {@link #AUTO_FIT} and it is not resolved yet
+     */
+    boolean isAutoFitPending() {
+        return mSpanCount == AUTO_FIT;
+    }
+
+    /**
+     * Enable or disable uniform item mode. Span size lookup set before is not used while the
+     * mode is enabled and is restored when it is disabled.
+     *
+     * @param uniformItems if true, enable uniform item mode
+     * @see Builder#uniformItems(boolean)
+     */
+    public void setUniformItems(boolean uniformItems) {
+        if (mUniformItems == uniformItems) {
+            return;
+        }
+
+        mUniformItems = uniformItems;
+        mItemMeasuredWidth = 0;
+        mItemMeasuredHeight = 0;
+        mUniformItemPitch = 0;
+        mUniformItemInset = 0;
+
+        if (uniformItems) {
+            mSavedSpanSizeLookup = getSpanSizeLookup();
+            setSpanSizeLookup(new UniformSpanSizeLookup());
+        } else {
+            setSpanSizeLookup(mSavedSpanSizeLookup != null
+                    ? mSavedSpanSizeLookup
+                    : new DefaultSpanSizeLookup());
+            mSavedSpanSizeLookup = null;
+        }
+        requestLayout();
+    }
+
+    public boolean isUniformItems() {
+        return mUniformItems;
+    }
+
+    /**
+     * Enable or disable adaptive recycling. Recycled view pool of RecyclerView, if it is
+     * {@link AdaptiveRecycledViewPool}, is sized after each layout to hold as many views as
+     * visible span groups plus one have, so that paging by full viewport reuses views instead of
+     * inflating them. Default pool of {@link DpadAwareRecyclerView} is replaced with adaptive
+     * one, while pool set by app is left alone unless it is adaptive. Item view cache keeps span
+     * groups which have just scrolled off behind focus, so stepping back doesn't rebind them, see
+     * {@link #setRetainedSpanGroups(int)}. Sizes follow span count, including resolution of
+     * {@link #AUTO_FIT}.
+     * <p>
+     * Item view cache never gets smaller than the size set on {@link DpadAwareRecyclerView} by
+     * app, and the size is restored when adaptive recycling is disabled. Other RecyclerViews get
+     * their item view cache size overwritten.
+     *
+     * @param adaptiveRecycling if true, enable adaptive recycling
+     * @see AdaptiveRecycledViewPool#getHitRate()
+     */
+    public void setAdaptiveRecycling(boolean adaptiveRecycling) {
+        if (mAdaptiveRecycling == adaptiveRecycling) {
+            return;
+        }
+
+        mAdaptiveRecycling = adaptiveRecycling;
+        mTunedSpanCount = 0;
+        mTunedSpanGroups = 0;
+
+        if (mRecyclerView == null) {
+            return;
+        }
+
+        if (adaptiveRecycling) {
+            installAdaptivePool(mRecyclerView);
+            requestLayout();
+        } else {
+            uninstallAdaptivePool();
+            setItemViewCacheSize(mRecyclerView, 0);
+        }
+    }
+
+    public boolean isAdaptiveRecycling() {
+        return mAdaptiveRecycling;
+    }
+
+    /**
+     * Sets number of span groups kept in item view cache after they scroll off behind focus.
+     * Cache is filled in order views leave screen, so it holds groups focus has just passed, and
+     * when focus turns back they are attached again without rebind. Takes effect with adaptive
+     * recycling.
+     *
+     * @param groups number of span groups
+     * @see #setRetainedViewBudget(int)
+     * @see #getReversalCacheHitCount()
+     */
+    public void setRetainedSpanGroups(int groups) {
+        if (groups < 0) {
+            throw new IllegalArgumentException("Retained span groups must be >= 0");
+        }
+
+        mRetainedSpanGroups = groups;
+        mTunedSpanCount = 0;
+        requestLayout();
+    }
+
+    public int getRetainedSpanGroups() {
+        return mRetainedSpanGroups;
+    }
+
+    /**
+     * Sets maximum number of views retained behind focus. Retained span groups are cut down to
+     * whole groups which fit this budget, so views of wide grids don't pile up.
+     *
+     * @param maxViews maximum number of retained views
+     * @see #setRetainedSpanGroups(int)
+     */
+    public void setRetainedViewBudget(int maxViews) {
+        if (maxViews < 0) {
+            throw new IllegalArgumentException("Retained view budget must be >= 0");
+        }
+
+        mRetainedViewBudget = maxViews;
+        mTunedSpanCount = 0;
+        requestLayout();
+    }
+
+    public int getRetainedViewBudget() {
+        return mRetainedViewBudget;
+    }
+
+    /**
+     * @return number of times focus turned back across span groups since counters were reset
+     */
+    public int getReversalCount() {
+        return mReversalCount;
+    }
+
+    /**
+     * Gets number of times focus turned back across span groups and every view it brought in was
+     * attached from item view cache, so reversal cost no bind. Reversal is counted when focus
+     * moves again, so the last one is not counted yet. Reversals are counted only while list
+     * uses {@link AdaptiveRecycledViewPool} with adaptive recycling.
+     *
+     * @return number of reversals served from cache since counters were reset
+     */
+    public int getReversalCacheHitCount() {
+        return mReversalCacheHitCount;
+    }
+
+    /**
+     * Resets reversal counters.
+     */
+    public void resetReversalCounters() {
+        mReversalCount = 0;
+        mReversalCacheHitCount = 0;
+        mReversalPending = false;
+    }
+
+    /**
+     * Sets policy which places selected item along main axis, both when focus moves and on
+     * {@link #scrollToPosition(int)}. Takes precedence over offset fraction. Focus moves use
+     * smooth scrolling if {@link DpadAwareRecyclerView#setSmoothScrolling(boolean)} is on.
+     *
+     * @param scrollAlignment alignment policy or null to use offset fraction
+     */
+    public void setScrollAlignment(@Nullable ScrollAlignment scrollAlignment) {
+        mScrollAlignment = scrollAlignment;
+    }
+
+    @Nullable
+    public ScrollAlignment getScrollAlignment() {
+        return mScrollAlignment;
+    }
+
     @Override
     public void setSpanCount(int spanCount) {
         if (spanCount < 1 && spanCount != AUTO_FIT) {
@@ -326,19 +703,28 @@ public class ExtGridLayoutManager extends GridLayoutManager {
 
         if (wrap && state.getItemCount() > 0) {
             int spanCount = getSpanCount();
-            View dummyChild = recycler.getViewForPosition(0);
-            measureChildWithMargins(dummyChild, 0, 0);
+
+            // Uniform items are measured once, otherwise ask the first item every time
+            if (!mUniformItems || mItemMeasuredWidth == 0) {
+                View dummyChild = recycler.getViewForPosition(0);
+                measureChildWithMargins(dummyChild, 0, 0);
+                mItemMeasuredWidth = dummyChild.getMeasuredWidth();
+                mItemMeasuredHeight = dummyChild.getMeasuredHeight();
+
+                // Give it back so layout (or next measure) reuses it instead of inflating new one
+                recycler.recycleView(dummyChild);
+            }
 
             if (orientation == VERTICAL) {
                 int widthSize = View.MeasureSpec.getSize(widthSpec);
-                int supposedOccupiedWidth = dummyChild.getMeasuredWidth() * spanCount;
+                int supposedOccupiedWidth = mItemMeasuredWidth * spanCount;
 
                 if (supposedOccupiedWidth <= widthSize) {
                     widthSpec = View.MeasureSpec.makeMeasureSpec(supposedOccupiedWidth, widthMode);
                 }
             } else {
                 int heightSize = View.MeasureSpec.getSize(heightSpec);
-                int supposedOccupiedHeight = dummyChild.getMeasuredHeight() * spanCount;
+                int supposedOccupiedHeight = mItemMeasuredHeight * spanCount;
 
                 if (supposedOccupiedHeight <= heightSize) {
                     heightSpec = View.MeasureSpec.makeMeasureSpec(supposedOccupiedHeight, heightMode);
@@ -359,9 +745,11 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         // Have no span size data. Trying to determine it from what children want themselves.
         if (mSpanSize <= 0) {
             View dummyChild = recycler.getViewForPosition(0);
+            measureChildWithMargins(dummyChild, 0, 0);
             mSpanSize = orientation == VERTICAL
                     ? getDecoratedMeasuredWidth(dummyChild)
                     : getDecoratedMeasuredHeight(dummyChild);
+            recycler.recycleView(dummyChild);
         }
 
         if (mSpanSize > 0) {
@@ -375,6 +763,10 @@ public class ExtGridLayoutManager extends GridLayoutManager {
     public void onLayoutChildren(RecyclerView.Recycler recycler, @NonNull RecyclerView.State state) {
         super.onLayoutChildren(recycler, state);
 
+        if (mUniformItems && getChildCount() > 0) {
+            measureUniformItem(getChildAt(0));
+        }
+
         if (mPendingChildPositionToFocus != DO_NOT_FOCUS) {
             int layoutPosToFocus;
 
@@ -400,12 +792,134 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         updateArrowTowardEndVisibility();
     }
 
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+
+        if (mAdaptiveRecycling && !state.isPreLayout()) {
+            tuneRecycling();
+        }
+    }
+
+    private void installAdaptivePool(@NonNull RecyclerView rv) {
+        RecyclerView.RecycledViewPool pool = rv.getRecycledViewPool();
+        if (!(pool instanceof AdaptiveRecycledViewPool)) {
+            // Pool set by app may be shared with other lists, so only default one is replaced
+            if (!(rv instanceof DpadAwareRecyclerView)
+                    || ((DpadAwareRecyclerView) rv).isRecycledViewPoolSet()) {
+                return;
+            }
+
+            pool = new AdaptiveRecycledViewPool();
+            ((DpadAwareRecyclerView) rv).installRecycledViewPool(pool);
+            mTunedSpanCount = 0;
+            mTunedSpanGroups = 0;
+        }
+
+        mListenedPool = (AdaptiveRecycledViewPool) pool;
+        mListenedPool.addOnViewPooledListener(mPooledListener);
+    }
+
+    private void uninstallAdaptivePool() {
+        if (mListenedPool != null) {
+            mListenedPool.removeOnViewPooledListener(mPooledListener);
+            mListenedPool = null;
+        }
+        mRetainedHolders.clear();
+    }
+
+    /**
+     * @return true if pool of list reports pooled holders, so retained ones can be told apart
+     */
+    private boolean isRetentionTracked() {
+        RecyclerView rv = mRecyclerView;
+        return mListenedPool != null && rv != null && rv.getRecycledViewPool() == mListenedPool;
+    }
+
+    /**
+     * @param size desired item view cache size or 0 to restore default one
+     */
+    private static void setItemViewCacheSize(@NonNull RecyclerView rv, int size) {
+        if (rv instanceof DpadAwareRecyclerView) {
+            ((DpadAwareRecyclerView) rv).tuneItemViewCacheSize(size);
+        } else {
+            rv.setItemViewCacheSize(
+                    Math.max(DpadAwareRecyclerView.DEFAULT_ITEM_VIEW_CACHE_SIZE, size));
+        }
+    }
+
+    /**
+     * Counts reversals of focus movement across span groups. Reversal is checked until focus
+     * moves again: if every view attached meanwhile came from item view cache, it is a hit.
+     *
+     * @param position adapter position of newly focused item
+     */
+    private void trackFocusDirection(int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int group = GridGeometry.getSpanGroupIndex(this, position);
+        int direction = mLastFocusGroup == RecyclerView.NO_POSITION
+                ? 0
+                : Integer.signum(group - mLastFocusGroup);
+        mLastFocusGroup = group;
+
+        if (direction == 0) {
+            return;
+        }
+
+        if (mReversalPending && !mReversalRebound) {
+            mReversalCacheHitCount++;
+        }
+        mReversalPending = false;
+
+        if (mLastGroupDirection != 0 && direction != mLastGroupDirection) {
+            mReversalCount++;
+            mReversalPending = true;
+            mReversalRebound = false;
+        }
+
+        mLastGroupDirection = direction;
+    }
+
+    /**
+     * Sizes pool and item view cache for current span count and number of visible span groups.
+     */
+    private void tuneRecycling() {
+        RecyclerView rv = mRecyclerView;
+        if (rv == null || getChildCount() == 0 || isAutoFitPending()) {
+            return;
+        }
+
+        int spanCount = getSpanCount();
+        int spanGroups = getVisibleSpanGroupCount();
+        if (spanCount == mTunedSpanCount && spanGroups == mTunedSpanGroups) {
+            return;
+        }
+
+        mTunedSpanCount = spanCount;
+        mTunedSpanGroups = spanGroups;
+
+        RecyclerView.RecycledViewPool pool = rv.getRecycledViewPool();
+        if (pool instanceof AdaptiveRecycledViewPool) {
+            ((AdaptiveRecycledViewPool) pool).setSize(spanCount * (spanGroups + 1));
+        }
+
+        int retainedGroups = Math.min(mRetainedSpanGroups, mRetainedViewBudget / spanCount);
+        setItemViewCacheSize(rv, retainedGroups * spanCount);
+    }
+
     @Override
     public boolean onRequestChildFocus(RecyclerView parent, RecyclerView.State state, View child,
             View focused) {
         updateArrowTowardBeginVisibility();
         updateArrowTowardEndVisibility();
 
+        if (isRetentionTracked()) {
+            trackFocusDirection(getPosition(child));
+        }
+
         return super.onRequestChildFocus(parent, state, child, focused);
     }
 
@@ -444,7 +958,21 @@ public class ExtGridLayoutManager extends GridLayoutManager {
 
     @Override
     public void scrollToPosition(int position) {
-        if (mOffsetEnabled) {
+        if (mScrollAlignment != null) {
+            super.scrollToPositionWithOffset(position, computeAlignedOffset(position));
+        } else if (mOffsetEnabled && isUniformItemMeasured()) {
+            // Put item right where requestChildRectangleOnScreen() would put it
+            int viewSize = getOrientation() == VERTICAL ? mItemMeasuredHeight : mItemMeasuredWidth;
+            int viewStart = getCameraCenter() - (int) Math.ceil(viewSize * 0.5);
+            int itemStart = viewStart - mUniformItemInset;
+
+            // Offset is measured from end edge when layout runs from it, RTL included
+            int offset = isVisuallyReversed()
+                    ? getEndAfterPadding() - (itemStart + mUniformItemPitch)
+                    : itemStart - getStartAfterPadding();
+
+            super.scrollToPositionWithOffset(position, offset);
+        } else if (mOffsetEnabled) {
             float offset = getOrientation() == VERTICAL
                     ? getHeight() * mOffsetFraction
                     : getWidth() * mOffsetFraction;
@@ -455,9 +983,626 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         }
     }
 
+    /**
+     * Finds position to jump to from passed one by number of span groups. Span index is kept if
+     * possible, target is clamped to adapter bounds. Nothing is laid out or bound, so target
+     * can be passed right to {@link #scrollToPosition(int)}.
+     *
+     * @param position adapter position to jump from
+     * @param forward  true to jump towards end of adapter
+     * @param groups   number of span groups to jump by or {@link #PAGE_JUMP_VIEWPORT}
+     * @return target adapter position or {@link RecyclerView#NO_POSITION} if there is none
+     */
+    public int findPageJumpTarget(int position, boolean forward, int groups) {
+        int itemCount = getItemCount();
+        if (position < 0 || position >= itemCount) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        if (groups < 0) {
+            throw new IllegalArgumentException("Number of span groups must not be negative");
+        }
+
+        if (groups == PAGE_JUMP_VIEWPORT) {
+            groups = getVisibleSpanGroupCount();
+        }
+
+        int spanCount = getSpanCount();
+        SpanSizeLookup lookup = getSpanSizeLookup();
+
+        if (lookup instanceof DefaultSpanSizeLookup || lookup instanceof UniformSpanSizeLookup) {
+            long target = position + (forward ? 1L : -1L) * groups * spanCount;
+            if (target < 0) {
+                // Keep column when hitting the start
+                return position % spanCount;
+            }
+
+            return (int) Math.min(target, itemCount - 1);
+        }
+
+        int group = lookup.getSpanGroupIndex(position, spanCount);
+        int spanIndex = lookup.getSpanIndex(position, spanCount);
+        int lastGroup = lookup.getSpanGroupIndex(itemCount - 1, spanCount);
+        int targetGroup = forward
+                ? (int) Math.min((long) group + groups, lastGroup)
+                : Math.max(group - groups, 0);
+
+        // Group indices grow monotonically with positions, so first item of group is searched
+        int low = 0;
+        int high = itemCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lookup.getSpanGroupIndex(mid, spanCount) < targetGroup) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int target = low;
+        while (target + 1 < itemCount
+                && lookup.getSpanGroupIndex(target + 1, spanCount) == targetGroup
+                && lookup.getSpanIndex(target + 1, spanCount) <= spanIndex) {
+            target++;
+        }
+
+        return target;
+    }
+
+    /**
+     * Counts span groups which are completely visible now.
+     *
+     * @return number of span groups, at least 1
+     */
+    private int getVisibleSpanGroupCount() {
+        if (isUniformItemMeasured()) {
+            return Math.max(1, (getEndAfterPadding() - getStartAfterPadding()) / mUniformItemPitch);
+        }
+
+        int first = findFirstCompletelyVisibleItemPosition();
+        int last = findLastCompletelyVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return 1;
+        }
+
+        int firstGroup = GridGeometry.getSpanGroupIndex(this, first);
+        int lastGroup = GridGeometry.getSpanGroupIndex(this, last);
+
+        return Math.max(1, Math.abs(lastGroup - firstGroup) + 1);
+    }
+
+    /**
+     * Starts scrolling continuously with constant speed. Focus stays on item which crosses line
+     * of focused item and has the same span index, and it changes without extra scrolling.
+     * Nothing happens if there is no focused item.
+     *
+     * @param groupsPerSecond speed in span groups per second, positive to scroll towards bottom
+     *                        or right side of content, negative to scroll the other way
+     * @see #stopContinuousScroll()
+     */
+    public void startContinuousScroll(float groupsPerSecond) {
+        View focused = mRecyclerView != null ? mRecyclerView.getFocusedChild() : null;
+        if (focused == null || groupsPerSecond == 0f) {
+            return;
+        }
+
+        if (!isContinuousScrolling()) {
+            mContinuousFrameTime = System.nanoTime();
+            mContinuousRemainder = 0f;
+            mContinuousSpanIndex = GridGeometry.getSpanIndex(this, getPosition(focused));
+            mContinuousFocusLine = getOrientation() == VERTICAL
+                    ? (focused.getTop() + focused.getBottom()) / 2
+                    : (focused.getLeft() + focused.getRight()) / 2;
+            postOnAnimation(mContinuousScrollFrame);
+        }
+
+        mContinuousVelocity = groupsPerSecond;
+    }
+
+    /**
+     * Stops continuous scrolling. Scrolling smoothly settles on the nearest span group boundary,
+     * or brings focused item where navigation would if offset or scroll alignment policy is set,
+     * see {@link #computeSnapDistance(View)}.
+     */
+    public void stopContinuousScroll() {
+        if (!isContinuousScrolling()) {
+            return;
+        }
+
+        mContinuousVelocity = 0f;
+        removeCallbacks(mContinuousScrollFrame);
+
+        View focused = mRecyclerView != null ? mRecyclerView.getFocusedChild() : null;
+        if (focused != null) {
+            int distance = mScrollAlignment != null || mOffsetEnabled
+                    ? computeSnapDistance(focused)
+                    : computeGroupBoundaryDistance(focused);
+            if (getOrientation() == VERTICAL) {
+                mRecyclerView.smoothScrollBy(0, distance);
+            } else {
+                mRecyclerView.smoothScrollBy(distance, 0);
+            }
+        }
+    }
+
+    public boolean isContinuousScrolling() {
+        return mContinuousVelocity != 0f;
+    }
+
+    /**
+     * Computes distance along main axis to the nearest span group boundary, measured from
+     * viewport start.
+     *
+     * @param child laid out child
+     * @return distance in px, positive to scroll towards bottom or right side of content
+     */
+    private int computeGroupBoundaryDistance(@NonNull View child) {
+        int pitch = getSpanGroupPitch(child);
+        if (pitch <= 0) {
+            return 0;
+        }
+
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        int itemStart = getOrientation() == VERTICAL
+                ? getDecoratedTop(child) - lp.topMargin
+                : getDecoratedLeft(child) - lp.leftMargin;
+
+        int remainder = (itemStart - getStartAfterPadding()) % pitch;
+        if (remainder < 0) {
+            remainder += pitch;
+        }
+
+        return remainder <= pitch / 2 ? remainder : remainder - pitch;
+    }
+
+    private void doContinuousScrollFrame() {
+        RecyclerView rv = mRecyclerView;
+        View focused = rv != null ? rv.getFocusedChild() : null;
+        if (focused == null) {
+            mContinuousVelocity = 0f;
+            return;
+        }
+
+        long now = System.nanoTime();
+        long frameTime = Math.min(now - mContinuousFrameTime, CONTINUOUS_SCROLL_MAX_FRAME_NANOS);
+        mContinuousFrameTime = now;
+
+        float distance = mContinuousVelocity * getSpanGroupPitch(focused) * frameTime / 1e9f
+                + mContinuousRemainder;
+        int delta = (int) distance;
+        mContinuousRemainder = distance - delta;
+
+        boolean vertical = getOrientation() == VERTICAL;
+        boolean canScroll = vertical
+                ? rv.canScrollVertically(delta)
+                : rv.canScrollHorizontally(delta);
+
+        if (delta != 0 && !canScroll) {
+            // Reached the edge, stop right at it
+            stopContinuousScroll();
+            return;
+        }
+
+        if (delta != 0) {
+            rv.scrollBy(vertical ? 0 : delta, vertical ? delta : 0);
+            followFocusLine();
+        }
+
+        postOnAnimation(mContinuousScrollFrame);
+    }
+
+    /**
+     * Moves focus to item crossing focus line which is closest to remembered span index.
+     */
+    private void followFocusLine() {
+        View target = null;
+        int targetSpanIndex = -1;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            boolean crosses = getOrientation() == VERTICAL
+                    ? getDecoratedTop(child) <= mContinuousFocusLine
+                    && getDecoratedBottom(child) > mContinuousFocusLine
+                    : getDecoratedLeft(child) <= mContinuousFocusLine
+                    && getDecoratedRight(child) > mContinuousFocusLine;
+
+            if (crosses) {
+                int spanIndex = GridGeometry.getSpanIndex(this, getPosition(child));
+                if (spanIndex <= mContinuousSpanIndex && spanIndex > targetSpanIndex) {
+                    target = child;
+                    targetSpanIndex = spanIndex;
+                }
+            }
+        }
+
+        if (target != null && !target.hasFocus()) {
+            mContinuousFocusChanging = true;
+            target.requestFocus();
+            mContinuousFocusChanging = false;
+        }
+    }
+
+    /**
+     * @param child any child
+     * @return distance between starts of adjacent span groups
+     */
+    private int getSpanGroupPitch(@NonNull View child) {
+        if (isUniformItemMeasured()) {
+            return mUniformItemPitch;
+        }
+
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        return getOrientation() == VERTICAL
+                ? getDecoratedMeasuredHeight(child) + lp.topMargin + lp.bottomMargin
+                : getDecoratedMeasuredWidth(child) + lp.leftMargin + lp.rightMargin;
+    }
+
+    /**
+     * Smoothly scrolls to position. If {@link SpanGroupSnapHelper} is attached to list, item ends
+     * up right where {@link #computeSnapDistance(View)} wants it in one animation, otherwise it
+     * is just made visible.
+     */
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state,
+            int position) {
+        if (!(recyclerView.getOnFlingListener() instanceof SpanGroupSnapHelper)) {
+            super.smoothScrollToPosition(recyclerView, state, position);
+            return;
+        }
+
+        LinearSmoothScroller scroller = new SnapSmoothScroller(recyclerView.getContext());
+        scroller.setTargetPosition(position);
+        startSmoothScroll(scroller);
+    }
+
+    /**
+     * Smooth scroller which settles target item at its snap position instead of making it
+     * just visible.
+     */
+    private final class SnapSmoothScroller extends LinearSmoothScroller {
+
+        SnapSmoothScroller(Context context) {
+            super(context);
+        }
+
+        @Override
+        public int calculateDyToMakeVisible(View view, int snapPreference) {
+            return getOrientation() == VERTICAL ? -computeSnapDistance(view) : 0;
+        }
+
+        @Override
+        public int calculateDxToMakeVisible(View view, int snapPreference) {
+            return getOrientation() == HORIZONTAL ? -computeSnapDistance(view) : 0;
+        }
+    }
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        mRecyclerView = view;
+        view.addOnChildAttachStateChangeListener(mRetentionListener);
+
+        if (mAdaptiveRecycling) {
+            installAdaptivePool(view);
+        }
+    }
+
+    @Override
+    public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        mContinuousVelocity = 0f;
+        removeCallbacks(mContinuousScrollFrame);
+
+        view.removeOnChildAttachStateChangeListener(mRetentionListener);
+        uninstallAdaptivePool();
+        mLastFocusGroup = RecyclerView.NO_POSITION;
+        mLastGroupDirection = 0;
+        mReversalPending = false;
+
+        mRecyclerView = null;
+        super.onDetachedFromWindow(view, recycler);
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return canComputeUniformScroll(VERTICAL)
+                ? computeUniformScrollOffset(state)
+                : super.computeVerticalScrollOffset(state);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return canComputeUniformScroll(VERTICAL)
+                ? computeUniformScrollRange(state)
+                : super.computeVerticalScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return canComputeUniformScroll(VERTICAL)
+                ? getEndAfterPadding() - getStartAfterPadding()
+                : super.computeVerticalScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        return canComputeUniformScroll(HORIZONTAL)
+                ? computeUniformScrollOffset(state)
+                : super.computeHorizontalScrollOffset(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        return canComputeUniformScroll(HORIZONTAL)
+                ? computeUniformScrollRange(state)
+                : super.computeHorizontalScrollRange(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return canComputeUniformScroll(HORIZONTAL)
+                ? getEndAfterPadding() - getStartAfterPadding()
+                : super.computeHorizontalScrollExtent(state);
+    }
+
+    /**
+     * Computes offset for {@link #scrollToPositionWithOffset(int, int)} which puts item where
+     * scroll alignment policy wants it. Item which isn't laid out is assumed to be of the same
+     * size as laid out ones. Amount of content around it is known in uniform item mode only,
+     * otherwise edge gaps are fixed by layout itself.
+     */
+    private int computeAlignedOffset(int position) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int size = 0;
+        int inset = 0;
+        int pitch = 0;
+        int spaceBefore = ScrollAlignment.UNKNOWN_SPACE;
+        int spaceAfter = ScrollAlignment.UNKNOWN_SPACE;
+
+        if (isUniformItemMeasured()) {
+            size = vertical ? mItemMeasuredHeight : mItemMeasuredWidth;
+            inset = mUniformItemInset;
+            pitch = mUniformItemPitch;
+            spaceBefore = getUniformContentSpace(position, size, true);
+            spaceAfter = getUniformContentSpace(position, size, false);
+        } else {
+            View sample = findViewByPosition(position);
+            if (sample == null) {
+                sample = getFocusedChild() != null ? getFocusedChild() : getChildAt(0);
+            }
+
+            if (sample != null) {
+                RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) sample.getLayoutParams();
+                size = vertical ? sample.getHeight() : sample.getWidth();
+                inset = vertical
+                        ? sample.getTop() - getDecoratedTop(sample) + lp.topMargin
+                        : sample.getLeft() - getDecoratedLeft(sample) + lp.leftMargin;
+                pitch = vertical
+                        ? getDecoratedMeasuredHeight(sample) + lp.topMargin + lp.bottomMargin
+                        : getDecoratedMeasuredWidth(sample) + lp.leftMargin + lp.rightMargin;
+            }
+        }
+
+        int viewStart = mScrollAlignment.computeItemStart(getStartAfterPadding(),
+                getEndAfterPadding(), size, spaceBefore, spaceAfter);
+        int itemStart = viewStart - inset;
+
+        return isVisuallyReversed()
+                ? getEndAfterPadding() - (itemStart + pitch)
+                : itemStart - getStartAfterPadding();
+    }
+
+    /**
+     * Scrolls so that child is where scroll alignment policy wants it.
+     *
+     * @return true if scrolled
+     */
+    private boolean scrollToAlignment(RecyclerView parent, View child, boolean immediate) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int delta = computeSnapDistance(child);
+        if (delta == 0) {
+            return false;
+        }
+
+        int dx = vertical ? 0 : delta;
+        int dy = vertical ? delta : 0;
+        boolean smooth = !immediate && parent instanceof DpadAwareRecyclerView
+                && ((DpadAwareRecyclerView) parent).getSmoothScrolling();
+
+        if (smooth) {
+            parent.smoothScrollBy(dx, dy);
+        } else {
+            parent.scrollBy(dx, dy);
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes distance along main axis to scroll by, so that child gets where navigation puts
+     * selected item: where scroll alignment policy wants it, or centered on camera line, or
+     * with its span group at viewport start if neither policy nor offset is set.
+     *
+     * @param child laid out child
+     * @return distance in px, positive to scroll towards bottom or right side of content
+     */
+    public int computeSnapDistance(@NonNull View child) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int viewStart = vertical ? child.getTop() : child.getLeft();
+
+        if (mScrollAlignment != null) {
+            return viewStart - computeAlignedStart(child, viewStart);
+        }
+
+        if (mOffsetEnabled) {
+            int size = isUniformItemMeasured()
+                    ? (vertical ? mItemMeasuredHeight : mItemMeasuredWidth)
+                    : (vertical ? child.getHeight() : child.getWidth());
+            return viewStart - (getCameraCenter() - (int) Math.ceil(size * 0.5));
+        }
+
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        int itemStart = vertical
+                ? getDecoratedTop(child) - lp.topMargin
+                : getDecoratedLeft(child) - lp.leftMargin;
+        return itemStart - getStartAfterPadding();
+    }
+
+    /**
+     * Computes where scroll alignment policy wants child view to start.
+     */
+    private int computeAlignedStart(View child, int viewStart) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int size;
+        int spaceBefore;
+        int spaceAfter;
+
+        if (isUniformItemMeasured()) {
+            int position = getPosition(child);
+            size = vertical ? mItemMeasuredHeight : mItemMeasuredWidth;
+            spaceBefore = getUniformContentSpace(position, size, true);
+            spaceAfter = getUniformContentSpace(position, size, false);
+        } else {
+            size = vertical ? child.getHeight() : child.getWidth();
+            spaceBefore = getLaidOutContentSpace(viewStart, viewStart + size, true);
+            spaceAfter = getLaidOutContentSpace(viewStart, viewStart + size, false);
+        }
+
+        return mScrollAlignment.computeItemStart(getStartAfterPadding(), getEndAfterPadding(),
+                size, spaceBefore, spaceAfter);
+    }
+
+    /**
+     * Computes amount of content before or after item view in uniform item mode.
+     */
+    private int getUniformContentSpace(int position, int size, boolean before) {
+        int group = position / getSpanCount();
+        int lastGroup = getSpanGroupCount(getItemCount()) - 1;
+        int groups = before != isVisuallyReversed() ? group : lastGroup - group;
+
+        long space = (long) groups * mUniformItemPitch + (before
+                ? mUniformItemInset
+                : mUniformItemPitch - mUniformItemInset - size);
+        return (int) Math.min(space, ScrollAlignment.UNKNOWN_SPACE - 1);
+    }
+
+    /**
+     * Computes amount of content before or after item view if edge item is laid out.
+     */
+    private int getLaidOutContentSpace(int viewStart, int viewEnd, boolean before) {
+        int edgePosition = before != isVisuallyReversed() ? 0 : getItemCount() - 1;
+        View edge = findViewByPosition(edgePosition);
+        if (edge == null) {
+            return ScrollAlignment.UNKNOWN_SPACE;
+        }
+
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) edge.getLayoutParams();
+        boolean vertical = getOrientation() == VERTICAL;
+
+        if (before) {
+            return viewStart - (vertical
+                    ? getDecoratedTop(edge) - lp.topMargin
+                    : getDecoratedLeft(edge) - lp.leftMargin);
+        }
+
+        return (vertical
+                ? getDecoratedBottom(edge) + lp.bottomMargin
+                : getDecoratedRight(edge) + lp.rightMargin) - viewEnd;
+    }
+
+    /**
+     * @return true if adapter order runs bottom to top or right to left
+     */
+    private boolean isVisuallyReversed() {
+        boolean rtl = getOrientation() == HORIZONTAL
+                && getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+        return getReverseLayout() != rtl;
+    }
+
+    private boolean isUniformItemMeasured() {
+        return mUniformItems && mUniformItemPitch > 0;
+    }
+
+    private boolean canComputeUniformScroll(int orientation) {
+        return isUniformItemMeasured() && getOrientation() == orientation && getChildCount() > 0;
+    }
+
+    /**
+     * Remember size of uniform item from laid out child.
+     *
+     * @param child laid out child
+     */
+    private void measureUniformItem(@NonNull View child) {
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+
+        mItemMeasuredWidth = child.getMeasuredWidth();
+        mItemMeasuredHeight = child.getMeasuredHeight();
+
+        if (getOrientation() == VERTICAL) {
+            mUniformItemPitch = getDecoratedMeasuredHeight(child) + lp.topMargin + lp.bottomMargin;
+            mUniformItemInset = child.getTop() - getDecoratedTop(child) + lp.topMargin;
+        } else {
+            mUniformItemPitch = getDecoratedMeasuredWidth(child) + lp.leftMargin + lp.rightMargin;
+            mUniformItemInset = child.getLeft() - getDecoratedLeft(child) + lp.leftMargin;
+        }
+    }
+
+    private int computeUniformScrollRange(RecyclerView.State state) {
+        return getSpanGroupCount(state.getItemCount()) * mUniformItemPitch;
+    }
+
+    private int computeUniformScrollOffset(RecyclerView.State state) {
+        // Children are kept in visual order regardless of reverse layout
+        View first = getChildAt(0);
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) first.getLayoutParams();
+
+        int group = getPosition(first) / getSpanCount();
+        int groupsBefore = !isVisuallyReversed()
+                ? group
+                : getSpanGroupCount(state.getItemCount()) - 1 - group;
+
+        int firstStart = getOrientation() == VERTICAL
+                ? getDecoratedTop(first) - lp.topMargin
+                : getDecoratedLeft(first) - lp.leftMargin;
+
+        return Math.max(0, groupsBefore * mUniformItemPitch + getStartAfterPadding() - firstStart);
+    }
+
+    private int getSpanGroupCount(int itemCount) {
+        int spanCount = getSpanCount();
+        return (itemCount + spanCount - 1) / spanCount;
+    }
+
+    private int getStartAfterPadding() {
+        return getOrientation() == VERTICAL ? getPaddingTop() : getPaddingLeft();
+    }
+
+    private int getEndAfterPadding() {
+        return getOrientation() == VERTICAL
+                ? getHeight() - getPaddingBottom()
+                : getWidth() - getPaddingRight();
+    }
+
+    /**
+     * Camera line along main axis where center of selected item should be.
+     *
+     * @return camera line coordinate
+     */
+    private int getCameraCenter() {
+        return (int) ((getStartAfterPadding() + getEndAfterPadding()) * mOffsetFraction);
+    }
+
     @Override
     public boolean requestChildRectangleOnScreen(@NonNull RecyclerView parent, @NonNull View child, @NonNull Rect rect,
             boolean immediate) {
+        if (mContinuousFocusChanging) {
+            // Continuous scrolling moves items itself
+            return false;
+        }
+
+        if (mScrollAlignment != null) {
+            return scrollToAlignment(parent, child, immediate);
+        }
+
         if (!mOffsetEnabled) {
             return super.requestChildRectangleOnScreen(parent, child, rect, true);
         }
@@ -476,13 +1621,20 @@ public class ExtGridLayoutManager extends GridLayoutManager {
         int cameraTop;
         int cameraBottom;
 
+        // Uniform items are centered as a whole using size measured once
+        final boolean uniform = isUniformItemMeasured();
+
         final int cameraCenterX = (int) ((parentRight + parentLeft) * mOffsetFraction);
-        final int childHalfWidth = (int) Math.ceil((childRight - childLeft) * 0.5);
+        final int childHalfWidth = uniform && getOrientation() == HORIZONTAL
+                ? (int) Math.ceil(mItemMeasuredWidth * 0.5)
+                : (int) Math.ceil((childRight - childLeft) * 0.5);
         cameraLeft = cameraCenterX - childHalfWidth;
         cameraRight = cameraCenterX + childHalfWidth;
 
         final int cameraCenterY = (int) ((parentBottom + parentTop) * mOffsetFraction);
-        final int childHalfHeight = (int) Math.ceil((childBottom - childTop) * 0.5);
+        final int childHalfHeight = uniform && getOrientation() == VERTICAL
+                ? (int) Math.ceil(mItemMeasuredHeight * 0.5)
+                : (int) Math.ceil((childBottom - childTop) * 0.5);
         cameraTop = cameraCenterY - childHalfHeight;
         cameraBottom = cameraCenterY + childHalfHeight;
 
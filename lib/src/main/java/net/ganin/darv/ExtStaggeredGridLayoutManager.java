@@ -0,0 +1,622 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Extended {@link StaggeredGridLayoutManager} for items of variable size, e.g. poster walls.
+ *
+ * <p>New features are:
+ * <ul>
+ * <li>Selection camera offset.</li>
+ * <li>Circular navigation.</li>
+ * <li>Controlling 'arrow' views (any views really) indicating begin or end is reached.</li>
+ * <li>Predictable D-pad focus: along main axis focus stays in its lane, across it focus goes
+ * to the item of adjacent lane which is closest to focused one. Lanes are looked up in cache
+ * of laid out positions instead of searching whole viewport.</li>
+ * </ul>
+ */
+public class ExtStaggeredGridLayoutManager extends StaggeredGridLayoutManager {
+
+    /**
+     * Builder for {@link ExtStaggeredGridLayoutManager}.
+     */
+    public static final class Builder {
+
+        private float mOffsetFraction = 0.f;
+        private boolean mOffsetEnabled = false;
+        private boolean mCircular = false;
+        private int mSpanCount = 2;
+        private int mOrientation = VERTICAL;
+        private boolean mReverseOrder = false;
+        @Nullable
+        private View mArrowTowardBegin;
+        @Nullable
+        private View mArrowTowardEnd;
+
+        /**
+         * Selection offset fraction. E.g. if passed 0.5 selected view will be centered always.
+         *
+         * @param offsetFraction Offset fraction.
+         * @return This builder instance for chaining.
+         */
+        @NonNull
+        public Builder offsetFraction(@FloatRange(from = 0.f, to = 1.f) float offsetFraction) {
+            mOffsetFraction = offsetFraction;
+            mOffsetEnabled = true;
+            return this;
+        }
+
+        /**
+         * Make navigation circular (or not).
+         *
+         * @param circular if true, make navigation circular.
+         * @return This builder instance for chaining.
+         */
+        @NonNull
+        public Builder circular(boolean circular) {
+            mCircular = circular;
+            return this;
+        }
+
+        /**
+         * Set the number of lanes.
+         *
+         * @param spanCount The total number of lanes
+         * @return This builder instance for chaining.
+         *
+         * @see StaggeredGridLayoutManager#setSpanCount(int)
+         */
+        @NonNull
+        public Builder spanCount(int spanCount) {
+            if (spanCount < 1) {
+                throw new IllegalArgumentException("Span count must be > 0");
+            }
+
+            mSpanCount = spanCount;
+            return this;
+        }
+
+        /**
+         * Set the orientation of the layout.
+         *
+         * @param orientation orientation
+         * @return This builder instance for chaining.
+         *
+         * @see StaggeredGridLayoutManager#setOrientation(int)
+         */
+        @NonNull
+        public Builder orientation(int orientation) {
+            mOrientation = orientation;
+            return this;
+        }
+
+        /**
+         * Used to reverse item traversal and layout order.
+         *
+         * @param reverseOrder reverse order
+         * @return This builder instance for chaining.
+         *
+         * @see StaggeredGridLayoutManager#setReverseLayout(boolean)
+         */
+        @NonNull
+        public Builder reverseOrder(boolean reverseOrder) {
+            mReverseOrder = reverseOrder;
+            return this;
+        }
+
+        /**
+         * Set navigation arrows (or anything that represents them) to control. In particular,
+         * if user sees the beginning of adapter data, {@code arrowTowardBegin} will be hidden.
+         * If user sees the end of adapter data, {@code arrowTowardEnd} will be hidden.
+         *
+         * @param arrowTowardBegin View to hide when user see adapter beginning data.
+         * @param arrowTowardEnd View to hide when user see end data.
+         * @return This builder instance for chaining.
+         */
+        @NonNull
+        public Builder navigationArrows(@Nullable View arrowTowardBegin,
+                @Nullable View arrowTowardEnd) {
+            mArrowTowardBegin = arrowTowardBegin;
+            mArrowTowardEnd = arrowTowardEnd;
+            return this;
+        }
+
+        /**
+         * Build this adapter into {@link ExtStaggeredGridLayoutManager} instance.
+         *
+         * @return New {@link ExtStaggeredGridLayoutManager} instance.
+         */
+        @NonNull
+        public ExtStaggeredGridLayoutManager build() {
+            ExtStaggeredGridLayoutManager lm =
+                    new ExtStaggeredGridLayoutManager(mSpanCount, mOrientation);
+            lm.setReverseLayout(mReverseOrder);
+            lm.setCircular(mCircular);
+            if (mOffsetEnabled) lm.setOffset(mOffsetFraction);
+            lm.setArrowTowardBegin(mArrowTowardBegin);
+            lm.setArrowTowardEnd(mArrowTowardEnd);
+            return lm;
+        }
+    }
+
+    /* Values of lane cache besides lane index + 1. */
+    private static final int LANE_UNKNOWN = 0;
+    private static final int LANE_FULL_SPAN = -1;
+
+    /**
+     * How far from focused position item of the same lane is searched.
+     */
+    private static final int LANE_SEARCH_SPANS = 8;
+
+    private float mOffsetFraction = 0.f;
+    private boolean mOffsetEnabled = false;
+    private boolean mCircular = false;
+    private WeakReference<View> mArrowTowardBeginRef;
+    private WeakReference<View> mArrowTowardEndRef;
+
+    private int mPendingPositionToFocus = RecyclerView.NO_POSITION;
+
+    /**
+     * Lane of each adapter position which was laid out at least once, stored as lane index + 1,
+     * {@link #LANE_FULL_SPAN} or {@link #LANE_UNKNOWN}.
+     */
+    private int[] mLanes = new int[0];
+
+    public ExtStaggeredGridLayoutManager(Context context, AttributeSet attrs, int defStyleAttr,
+            int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    public ExtStaggeredGridLayoutManager(int spanCount, int orientation) {
+        super(spanCount, orientation);
+    }
+
+    public void disableOffset() {
+        mOffsetEnabled = false;
+    }
+
+    public void setOffset(@FloatRange(from = 0.f, to = 1.f) float offsetFraction) {
+        mOffsetFraction = offsetFraction;
+        mOffsetEnabled = true;
+    }
+
+    public float getOffsetFraction() {
+        return mOffsetFraction;
+    }
+
+    public boolean isOffsetEnabled() {
+        return mOffsetEnabled;
+    }
+
+    public void setCircular(boolean circular) {
+        mCircular = circular;
+    }
+
+    public boolean isCircular() {
+        return mCircular;
+    }
+
+    public void setArrowTowardBegin(View arrowTowardBegin) {
+        mArrowTowardBeginRef = new WeakReference<>(arrowTowardBegin);
+    }
+
+    public void setArrowTowardEnd(View arrowTowardEnd) {
+        mArrowTowardEndRef = new WeakReference<>(arrowTowardEnd);
+    }
+
+    @Override
+    public void setSpanCount(int spanCount) {
+        super.setSpanCount(spanCount);
+
+        // Super constructor sets span count before fields of this class are initialized
+        if (mLanes != null) {
+            Arrays.fill(mLanes, LANE_UNKNOWN);
+        }
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        super.onLayoutChildren(recycler, state);
+        recordLanes();
+
+        if (mPendingPositionToFocus != RecyclerView.NO_POSITION) {
+            View view = findViewByPosition(mPendingPositionToFocus);
+            if (view != null) {
+                view.requestFocus();
+            }
+
+            mPendingPositionToFocus = RecyclerView.NO_POSITION;
+        }
+
+        updateArrowTowardBeginVisibility();
+        updateArrowTowardEndVisibility();
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler,
+            RecyclerView.State state) {
+        int scrolled = super.scrollVerticallyBy(dy, recycler, state);
+        recordLanes();
+        return scrolled;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler,
+            RecyclerView.State state) {
+        int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        recordLanes();
+        return scrolled;
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+
+        if (positionStart < mLanes.length) {
+            int[] lanes = new int[mLanes.length + itemCount];
+            System.arraycopy(mLanes, 0, lanes, 0, positionStart);
+            System.arraycopy(mLanes, positionStart, lanes, positionStart + itemCount,
+                    mLanes.length - positionStart);
+            mLanes = lanes;
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+
+        if (positionStart < mLanes.length) {
+            int end = Math.min(positionStart + itemCount, mLanes.length);
+            int[] lanes = new int[mLanes.length - (end - positionStart)];
+            System.arraycopy(mLanes, 0, lanes, 0, positionStart);
+            System.arraycopy(mLanes, end, lanes, positionStart, mLanes.length - end);
+            mLanes = lanes;
+        }
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+
+        // Moved items and items in between get new lanes on next layout
+        int start = Math.min(from, to);
+        int end = Math.min(Math.max(from, to) + itemCount, mLanes.length);
+        if (start < end) {
+            Arrays.fill(mLanes, start, end, LANE_UNKNOWN);
+        }
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        mLanes = new int[0];
+    }
+
+    @Override
+    public View onInterceptFocusSearch(@NonNull View focused, int direction) {
+        View child = findContainingItemView(focused);
+        if (child == null) {
+            return null;
+        }
+
+        int position = getPosition(child);
+        int lane = getCachedLane(position);
+        if (lane == LANE_UNKNOWN) {
+            return null;
+        }
+
+        boolean vertical = getOrientation() == VERTICAL;
+        boolean rtl = getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+        boolean reversed = getReverseLayout();
+
+        switch (direction) {
+            case View.FOCUS_DOWN:
+                return vertical
+                        ? findNextInLane(position, lane, !reversed)
+                        : findInAdjacentLane(child, lane, 1);
+            case View.FOCUS_UP:
+                return vertical
+                        ? findNextInLane(position, lane, reversed)
+                        : findInAdjacentLane(child, lane, -1);
+            case View.FOCUS_RIGHT:
+                return vertical
+                        ? findInAdjacentLane(child, lane, rtl ? -1 : 1)
+                        : findNextInLane(position, lane, reversed == rtl);
+            case View.FOCUS_LEFT:
+                return vertical
+                        ? findInAdjacentLane(child, lane, rtl ? 1 : -1)
+                        : findNextInLane(position, lane, reversed != rtl);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean onRequestChildFocus(RecyclerView parent, RecyclerView.State state, View child,
+            View focused) {
+        updateArrowTowardBeginVisibility();
+        updateArrowTowardEndVisibility();
+
+        return super.onRequestChildFocus(parent, state, child, focused);
+    }
+
+    @Override
+    public View onFocusSearchFailed(@NonNull View focused, int focusDirection,
+            RecyclerView.Recycler recycler, RecyclerView.State state) {
+        View nextView = super.onFocusSearchFailed(focused, focusDirection, recycler, state);
+
+        if (nextView == null && mCircular && getItemCount() > 0) {
+            final int adapterPositionToJump;
+            boolean forward = getOrientation() == VERTICAL
+                    ? focusDirection == View.FOCUS_DOWN
+                    : focusDirection == View.FOCUS_RIGHT;
+            boolean backward = getOrientation() == VERTICAL
+                    ? focusDirection == View.FOCUS_UP
+                    : focusDirection == View.FOCUS_LEFT;
+
+            if (forward != getReverseLayout() && (forward || backward)) {
+                adapterPositionToJump = 0;
+            } else if (forward || backward) {
+                adapterPositionToJump = getItemCount() - 1;
+            } else {
+                return null;
+            }
+
+            mPendingPositionToFocus = adapterPositionToJump;
+
+            // Can't initiate scrolling because requesting layout is forbidden in this state
+            focused.post(new Runnable() {
+                @Override
+                public void run() {
+                    scrollToPosition(adapterPositionToJump);
+                }
+            });
+        }
+
+        return nextView;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        if (mOffsetEnabled) {
+            super.scrollToPositionWithOffset(position, computeCameraOffset(position));
+        } else {
+            super.scrollToPosition(position);
+        }
+    }
+
+    /**
+     * Computes offset for {@link #scrollToPositionWithOffset(int, int)} which centers item on
+     * camera line right where {@link #requestChildRectangleOnScreen} would put it. Size of item
+     * which is not laid out is taken from some laid out child, since items can't be measured
+     * before layout.
+     *
+     * @param position adapter position
+     * @return offset from start edge, or from end edge in reversed layout
+     */
+    private int computeCameraOffset(int position) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int startPadding = vertical ? getPaddingTop() : getPaddingLeft();
+        int endAfterPadding = vertical
+                ? getHeight() - getPaddingBottom()
+                : getWidth() - getPaddingRight();
+        int cameraCenter = (int) ((startPadding + endAfterPadding) * mOffsetFraction);
+
+        View reference = findViewByPosition(position);
+        if (reference == null && getChildCount() > 0) {
+            reference = getChildAt(0);
+        }
+
+        if (reference == null) {
+            return cameraCenter - startPadding;
+        }
+
+        // Offset is applied to decorated item with margins, camera line centers item view
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) reference.getLayoutParams();
+        int viewSize;
+        int insetBefore;
+        int insetAfter;
+        if (vertical) {
+            viewSize = reference.getMeasuredHeight();
+            insetBefore = getTopDecorationHeight(reference) + lp.topMargin;
+            insetAfter = getBottomDecorationHeight(reference) + lp.bottomMargin;
+        } else {
+            viewSize = reference.getMeasuredWidth();
+            insetBefore = getLeftDecorationWidth(reference) + lp.leftMargin;
+            insetAfter = getRightDecorationWidth(reference) + lp.rightMargin;
+        }
+
+        int viewStart = cameraCenter - (int) Math.ceil(viewSize * 0.5);
+
+        return isVisuallyReversed()
+                ? endAfterPadding - (viewStart + viewSize + insetAfter)
+                : viewStart - insetBefore - startPadding;
+    }
+
+    /**
+     * @return true if adapter order runs bottom to top or right to left on screen
+     */
+    private boolean isVisuallyReversed() {
+        boolean rtl = getOrientation() == HORIZONTAL
+                && getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+        return getReverseLayout() != rtl;
+    }
+
+    @Override
+    public boolean requestChildRectangleOnScreen(@NonNull RecyclerView parent,
+            @NonNull View child, @NonNull Rect rect, boolean immediate) {
+        if (!mOffsetEnabled) {
+            return super.requestChildRectangleOnScreen(parent, child, rect, true);
+        }
+
+        // Item centers on camera line along main axis, lanes don't scroll across it
+        int delta;
+        if (getOrientation() == VERTICAL) {
+            int cameraCenter = (int) ((getPaddingTop() + getHeight() - getPaddingBottom())
+                    * mOffsetFraction);
+            int childTop = child.getTop() + rect.top;
+            delta = childTop + (int) Math.ceil(rect.height() * 0.5) - cameraCenter;
+        } else {
+            int cameraCenter = (int) ((getPaddingLeft() + getWidth() - getPaddingRight())
+                    * mOffsetFraction);
+            int childLeft = child.getLeft() + rect.left;
+            delta = childLeft + (int) Math.ceil(rect.width() * 0.5) - cameraCenter;
+        }
+
+        if (delta != 0) {
+            if (getOrientation() == VERTICAL) {
+                parent.scrollBy(0, delta);
+            } else {
+                parent.scrollBy(delta, 0);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Remembers lanes of laid out children.
+     */
+    private void recordLanes() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int position = getPosition(child);
+            if (position < 0 || lp.getSpanIndex() < 0) {
+                continue;
+            }
+
+            if (position >= mLanes.length) {
+                mLanes = Arrays.copyOf(mLanes, Math.max(position + 1, mLanes.length * 2));
+            }
+
+            mLanes[position] = lp.isFullSpan() ? LANE_FULL_SPAN : lp.getSpanIndex() + 1;
+        }
+    }
+
+    private int getCachedLane(int position) {
+        return position >= 0 && position < mLanes.length ? mLanes[position] : LANE_UNKNOWN;
+    }
+
+    /**
+     * Finds next laid out item of lane in adapter order. Full span items belong to every lane.
+     */
+    @Nullable
+    private View findNextInLane(int position, int lane, boolean forward) {
+        int step = forward ? 1 : -1;
+        int limit = LANE_SEARCH_SPANS * getSpanCount();
+
+        for (int pos = position + step, n = 0; n < limit; pos += step, n++) {
+            int posLane = getCachedLane(pos);
+            if (posLane == LANE_UNKNOWN) {
+                // Not laid out yet, let the layout manager bring it in
+                return null;
+            }
+
+            if (posLane == lane || posLane == LANE_FULL_SPAN || lane == LANE_FULL_SPAN) {
+                return findViewByPosition(pos);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds laid out item of adjacent lane whose center along main axis is closest to the
+     * center of passed child.
+     */
+    @Nullable
+    private View findInAdjacentLane(View child, int lane, int laneStep) {
+        if (lane == LANE_FULL_SPAN) {
+            return null;
+        }
+
+        int targetLane = lane + laneStep;
+        if (targetLane < 1 || targetLane > getSpanCount()) {
+            return null;
+        }
+
+        boolean vertical = getOrientation() == VERTICAL;
+        int center = vertical
+                ? (child.getTop() + child.getBottom()) / 2
+                : (child.getLeft() + child.getRight()) / 2;
+
+        View target = null;
+        int minDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            View candidate = getChildAt(i);
+            if (getCachedLane(getPosition(candidate)) != targetLane) {
+                continue;
+            }
+
+            int candidateCenter = vertical
+                    ? (candidate.getTop() + candidate.getBottom()) / 2
+                    : (candidate.getLeft() + candidate.getRight()) / 2;
+            int distance = Math.abs(candidateCenter - center);
+            if (distance < minDistance) {
+                minDistance = distance;
+                target = candidate;
+            }
+        }
+
+        return target;
+    }
+
+    private void updateArrowTowardBeginVisibility() {
+        View arrowTowardBegin;
+        if (mArrowTowardBeginRef == null || (arrowTowardBegin = mArrowTowardBeginRef.get()) == null) {
+            return;
+        }
+
+        View firstChild = findViewByPosition(0);
+        boolean atBegin = getChildCount() == 0 || firstChild != null
+                && firstChild.getTop() >= getPaddingTop()
+                && firstChild.getLeft() >= getPaddingLeft();
+
+        arrowTowardBegin.setVisibility(atBegin ? View.INVISIBLE : View.VISIBLE);
+    }
+
+    private void updateArrowTowardEndVisibility() {
+        View arrowTowardEnd;
+        if (mArrowTowardEndRef == null || (arrowTowardEnd = mArrowTowardEndRef.get()) == null) {
+            return;
+        }
+
+        View lastChild = findViewByPosition(getItemCount() - 1);
+        boolean atEnd = getChildCount() == 0 || lastChild != null
+                && lastChild.getBottom() <= getHeight() - getPaddingBottom()
+                && lastChild.getRight() <= getWidth() - getPaddingRight();
+
+        arrowTowardEnd.setVisibility(atEnd ? View.INVISIBLE : View.VISIBLE);
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FocusStore} backed by append-only file.
+ * <p>
+ * File is read into memory on background thread as soon as instance is created, so create it
+ * early (e.g. in {@link android.app.Application#onCreate()}) and share it between screens.
+ * Until reading is finished {@link #get(String, String)} returns null. Records are appended in
+ * batches on the same background thread, and file is rewritten from memory once it grows
+ * considerably bigger than the number of distinct records.
+ */
+public class FileFocusStore implements FocusStore {
+
+    private static final String TAG = "FileFocusStore";
+
+    /**
+     * Default delay between first put and writing of batch.
+     */
+    public static final long DEFAULT_WRITE_DELAY_MS = 1000;
+
+    private static final int MAGIC = 0x44415246;
+    private static final int VERSION = 1;
+    private static final int RECORD_MARK = 0x52;
+
+    /**
+     * File is compacted when it holds more than twice as many records as memory plus this slack.
+     */
+    private static final int COMPACT_SLACK = 64;
+
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static final class Entry {
+        final String mScreenKey;
+        final String mListKey;
+        final Record mRecord;
+
+        Entry(String screenKey, String listKey, Record record) {
+            mScreenKey = screenKey;
+            mListKey = listKey;
+            mRecord = record;
+        }
+    }
+
+    private final AtomicFile mFile;
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    private final Object mLock = new Object();
+    /* Guarded by mLock */
+    private final HashMap<String, Entry> mCache = new HashMap<>();
+    private final LinkedHashMap<String, Entry> mPendingWrites = new LinkedHashMap<>();
+    private boolean mWriteScheduled = false;
+    /* Guarded by mLock */
+
+    private volatile boolean mLoaded = false;
+    private volatile long mWriteDelayMs = DEFAULT_WRITE_DELAY_MS;
+
+    /* Accessed on background thread only */
+    private int mRecordsInFile = 0;
+    private boolean mFileValid = false;
+    /* Accessed on background thread only */
+
+    private final Runnable mLoadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            load();
+        }
+    };
+
+    private final Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    /**
+     * Creates store and starts reading it from file in background.
+     *
+     * @param file file to keep records in, created on first write
+     */
+    public FileFocusStore(@NonNull File file) {
+        mFile = new AtomicFile(file);
+
+        mExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        mExecutor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        mExecutor.allowCoreThreadTimeOut(true);
+
+        mExecutor.execute(mLoadRunnable);
+    }
+
+    /**
+     * @return true if file was read and records are available
+     */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Sets delay between first put and writing of batch. Puts made during that delay are
+     * written together.
+     *
+     * @param writeDelayMs delay in milliseconds
+     */
+    public void setWriteDelay(long writeDelayMs) {
+        if (writeDelayMs < 0) {
+            throw new IllegalArgumentException("Write delay must not be negative");
+        }
+
+        mWriteDelayMs = writeDelayMs;
+    }
+
+    /**
+     * Writes pending records without waiting for write delay, e.g. when app goes to background.
+     * Writing is still done in background.
+     */
+    public void flush() {
+        mExecutor.execute(mWriteRunnable);
+    }
+
+    @Nullable
+    @Override
+    public Record get(@NonNull String screenKey, @NonNull String listKey) {
+        if (!mLoaded) {
+            return null;
+        }
+
+        synchronized (mLock) {
+            Entry entry = mCache.get(key(screenKey, listKey));
+            return entry != null ? entry.mRecord : null;
+        }
+    }
+
+    @Override
+    public void put(@NonNull String screenKey, @NonNull String listKey, @NonNull Record record) {
+        String key = key(screenKey, listKey);
+        Entry entry = new Entry(screenKey, listKey, record);
+
+        synchronized (mLock) {
+            mCache.put(key, entry);
+            mPendingWrites.put(key, entry);
+
+            if (mWriteScheduled) {
+                return;
+            }
+
+            mWriteScheduled = true;
+        }
+
+        mExecutor.schedule(mWriteRunnable, mWriteDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static String key(String screenKey, String listKey) {
+        return screenKey + '\u0000' + listKey;
+    }
+
+    private void load() {
+        HashMap<String, Entry> loaded = new HashMap<>();
+        int records = 0;
+        boolean valid = false;
+
+        FileInputStream fis = null;
+        try {
+            fis = mFile.openRead();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
+
+            if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                int mark;
+                while ((mark = in.read()) == RECORD_MARK) {
+                    Entry entry = readEntry(in);
+                    loaded.put(key(entry.mScreenKey, entry.mListKey), entry);
+                    records++;
+                }
+
+                // Anything but clean end of file requires rewrite before appending
+                valid = mark < 0;
+            } else {
+                Log.w(TAG, "Unknown format of " + mFile.getBaseFile() + ", ignoring it");
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing was written yet
+        } catch (EOFException e) {
+            Log.w(TAG, "Truncated record in " + mFile.getBaseFile() + ", dropping it");
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + mFile.getBaseFile(), e);
+        } finally {
+            closeQuietly(fis);
+        }
+
+        synchronized (mLock) {
+            // Records put during loading are newer than loaded ones
+            for (Map.Entry<String, Entry> e : loaded.entrySet()) {
+                if (!mCache.containsKey(e.getKey())) {
+                    mCache.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+
+        mRecordsInFile = records;
+        mFileValid = valid;
+        mLoaded = true;
+    }
+
+    private void writePending() {
+        ArrayList<Entry> batch;
+        int cacheSize;
+
+        synchronized (mLock) {
+            mWriteScheduled = false;
+
+            if (mPendingWrites.isEmpty()) {
+                return;
+            }
+
+            batch = new ArrayList<>(mPendingWrites.values());
+            mPendingWrites.clear();
+            cacheSize = mCache.size();
+        }
+
+        if (!mFileValid || mRecordsInFile + batch.size() > 2 * cacheSize + COMPACT_SLACK) {
+            compact();
+        } else {
+            append(batch);
+        }
+    }
+
+    private void append(Collection<Entry> batch) {
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(mFile.getBaseFile(), true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+
+            for (Entry entry : batch) {
+                writeEntry(out, entry);
+            }
+
+            out.flush();
+            fos.getFD().sync();
+            mRecordsInFile += batch.size();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to append to " + mFile.getBaseFile(), e);
+            // Tail may be broken now, memory still has everything for the rewrite
+            mFileValid = false;
+        } finally {
+            closeQuietly(fos);
+        }
+    }
+
+    private void compact() {
+        ArrayList<Entry> snapshot;
+        synchronized (mLock) {
+            snapshot = new ArrayList<>(mCache.values());
+        }
+
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            for (Entry entry : snapshot) {
+                writeEntry(out, entry);
+            }
+
+            out.flush();
+            mFile.finishWrite(fos);
+
+            mRecordsInFile = snapshot.size();
+            mFileValid = true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + mFile.getBaseFile(), e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        String screenKey = in.readUTF();
+        String listKey = in.readUTF();
+        long stableId = in.readLong();
+        int position = in.readInt();
+        int scrollOffset = in.readInt();
+        return new Entry(screenKey, listKey, new Record(stableId, position, scrollOffset));
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.write(RECORD_MARK);
+        out.writeUTF(entry.mScreenKey);
+        out.writeUTF(entry.mListKey);
+        out.writeLong(entry.mRecord.getStableId());
+        out.writeInt(entry.mRecord.getPosition());
+        out.writeInt(entry.mRecord.getScrollOffset());
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.animation.TimeAnimator;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Helper class that moves stack of {@link SelectorLayer}s over some host view.
+ * <p>
+ * All layers are driven by one {@link TimeAnimator} which is reused between moves, and host is
+ * invalidated once per frame no matter how many layers there are. Host must keep reference to
+ * this instance because drawables keep their callbacks weakly.
+ * <p>
+ * Selector either flies for given duration, interpolated per layer, or follows critically
+ * damped spring which keeps its velocity when target changes. Spring is integrated analytically
+ * per frame, so its trajectory is the same at any steady frame rate. Frames longer than
+ * {@link #MAX_FRAME_TIME} are clamped though, so after stall selector lags behind instead of
+ * jumping.
+ */
+class FloatingSelector implements TimeAnimator.TimeListener, Drawable.Callback {
+
+    /**
+     * Listener of selector moves.
+     */
+    interface Listener {
+        /**
+         * Will be called when selector starts moving to new destination.
+         */
+        void onSelectorMoveStarted();
+
+        /**
+         * Will be called when selector arrives at destination, or when spring comes within settle
+         * threshold of it. Not called if move was cancelled or retargeted.
+         */
+        void onSelectorArrived();
+
+        /**
+         * Will be called every frame of move after layers are moved.
+         *
+         * @param progress fraction of move passed
+         */
+        void onSelectorProgress(float progress);
+    }
+
+    /**
+     * Default spring stiffness for unit mass, 1/s^2.
+     */
+    static final float DEFAULT_SPRING_STIFFNESS = 400f;
+
+    /**
+     * Default distance to target in px within which spring is considered arrived.
+     */
+    static final float DEFAULT_SETTLE_THRESHOLD = 2f;
+
+    /**
+     * Spring is stopped once it is closer than this to target in px...
+     */
+    private static final float REST_DISTANCE = 0.5f;
+
+    /**
+     * ...and slower than this in px/s.
+     */
+    private static final float REST_VELOCITY = 10f;
+
+    /**
+     * Frames longer than this are integrated as if they were this long, so selector doesn't
+     * teleport after stall.
+     */
+    private static final long MAX_FRAME_TIME = 50;
+
+    private static final int EDGES = 4;
+
+    private final View mHost;
+    private final ArrayList<SelectorLayer> mLayers = new ArrayList<>();
+    private final TimeAnimator mAnimator = new TimeAnimator();
+    private final RectEvaluator mEvaluator = new RectEvaluator();
+
+    private final Rect mSourceRect = new Rect();
+    private final Rect mDestRect = new Rect();
+    /**
+     * Selector bounds without layer insets at the moment.
+     */
+    private final Rect mCurrentRect = new Rect();
+    private final Rect mLayerRect = new Rect();
+
+    private long mDuration = 0;
+    private float mProgress = 1f;
+    private boolean mArrived = true;
+    private boolean mVisible = false;
+
+    /* Spring attributes */
+    private boolean mSpring = false;
+    private float mSpringOmega = (float) Math.sqrt(DEFAULT_SPRING_STIFFNESS);
+    private float mSettleThreshold = DEFAULT_SETTLE_THRESHOLD;
+    private float mSpringStartDistance = 0f;
+    /* Edges in left, top, right, bottom order */
+    private final float[] mSpringPosition = new float[EDGES];
+    private final float[] mSpringVelocity = new float[EDGES];
+    private final float[] mSpringTarget = new float[EDGES];
+    /* Spring attributes */
+
+    /**
+     * Layers are being moved. Their own invalidations are covered by single host invalidation.
+     */
+    private boolean mUpdatingBounds = false;
+
+    @Nullable
+    private Listener mListener;
+
+    FloatingSelector(@NonNull View host) {
+        mHost = host;
+        mAnimator.setTimeListener(this);
+    }
+
+    void setListener(@Nullable Listener listener) {
+        mListener = listener;
+    }
+
+    void addLayer(int index, @NonNull SelectorLayer layer) {
+        if (mLayers.contains(layer)) {
+            throw new IllegalStateException("Selector layer is already added");
+        }
+
+        mLayers.add(index, layer);
+
+        Drawable drawable = layer.getDrawable();
+        drawable.setCallback(this);
+        drawable.setVisible(mVisible, false);
+        applyBounds(layer);
+        mHost.invalidate();
+    }
+
+    boolean removeLayer(@NonNull SelectorLayer layer) {
+        if (!mLayers.remove(layer)) {
+            return false;
+        }
+
+        layer.getDrawable().setCallback(null);
+        mHost.invalidate();
+        return true;
+    }
+
+    int getLayerCount() {
+        return mLayers.size();
+    }
+
+    @NonNull
+    SelectorLayer getLayer(int index) {
+        return mLayers.get(index);
+    }
+
+    /**
+     * Gets selector bounds without layer insets at the moment.
+     *
+     * @param outRect rect to receive bounds
+     */
+    void getCurrentRect(@NonNull Rect outRect) {
+        outRect.set(mCurrentRect);
+    }
+
+    /**
+     * @return true if selector hasn't arrived at destination yet
+     */
+    boolean isMoving() {
+        return mAnimator.isStarted() && !mArrived;
+    }
+
+    /**
+     * Switches between duration based flight and spring. Running move is cancelled.
+     *
+     * @param spring true for spring
+     */
+    void setSpring(boolean spring) {
+        if (mSpring != spring) {
+            cancel();
+            mSpring = spring;
+        }
+    }
+
+    boolean isSpring() {
+        return mSpring;
+    }
+
+    /**
+     * @param stiffness spring stiffness for unit mass, 1/s^2
+     */
+    void setSpringStiffness(float stiffness) {
+        if (stiffness <= 0f) {
+            throw new IllegalArgumentException("Spring stiffness must be positive");
+        }
+
+        mSpringOmega = (float) Math.sqrt(stiffness);
+    }
+
+    float getSpringStiffness() {
+        return mSpringOmega * mSpringOmega;
+    }
+
+    /**
+     * @param threshold distance to target in px within which spring is considered arrived
+     */
+    void setSettleThreshold(float threshold) {
+        if (threshold < 0f) {
+            throw new IllegalArgumentException("Settle threshold must not be negative");
+        }
+
+        mSettleThreshold = threshold;
+    }
+
+    float getSettleThreshold() {
+        return mSettleThreshold;
+    }
+
+    /**
+     * @return fraction of current move passed, 1 if selector is at rest. For spring it is
+     * fraction of distance covered since last retarget.
+     */
+    float getProgress() {
+        return mProgress;
+    }
+
+    /**
+     * Starts moving selector from its current place. Running move is cancelled.
+     *
+     * @param dest     destination bounds
+     * @param duration move duration in ms, 0 or less to jump immediately
+     */
+    void moveTo(@NonNull Rect dest, long duration) {
+        if (mSpring) {
+            springTo(dest);
+            return;
+        }
+
+        cancel();
+
+        mSourceRect.set(mCurrentRect);
+        mDestRect.set(dest);
+        mDuration = duration;
+        mProgress = 0f;
+        mArrived = false;
+
+        if (mListener != null) {
+            mListener.onSelectorMoveStarted();
+        }
+
+        if (duration > 0) {
+            mAnimator.start();
+        } else {
+            update(1f);
+            arrive();
+        }
+    }
+
+    /**
+     * Retargets spring. Spring keeps its current velocity if it is already moving.
+     */
+    private void springTo(@NonNull Rect dest) {
+        if (!mAnimator.isStarted()) {
+            setEdges(mSpringPosition, mCurrentRect);
+            for (int i = 0; i < EDGES; i++) {
+                mSpringVelocity[i] = 0f;
+            }
+        }
+
+        mSourceRect.set(mCurrentRect);
+        mDestRect.set(dest);
+        setEdges(mSpringTarget, dest);
+
+        mSpringStartDistance = 0f;
+        for (int i = 0; i < EDGES; i++) {
+            float distance = Math.abs(mSpringPosition[i] - mSpringTarget[i]);
+            mSpringStartDistance = Math.max(mSpringStartDistance, distance);
+        }
+
+        mProgress = 0f;
+        mArrived = false;
+
+        if (mListener != null) {
+            mListener.onSelectorMoveStarted();
+        }
+
+        if (!mAnimator.isStarted()) {
+            mAnimator.start();
+        }
+    }
+
+    /**
+     * Stops selector where it is now.
+     */
+    void cancel() {
+        if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+    }
+
+    @Override
+    public void onTimeUpdate(TimeAnimator animation, long totalTime, long deltaTime) {
+        if (mSpring) {
+            stepSpring(Math.min(deltaTime, MAX_FRAME_TIME) / 1000f);
+            return;
+        }
+
+        float fraction = Math.min(1f, (float) totalTime / mDuration);
+        update(fraction);
+
+        if (fraction >= 1f) {
+            mAnimator.end();
+            arrive();
+        }
+    }
+
+    /**
+     * Advances critically damped spring of every edge by given time.
+     *
+     * @param t time in seconds
+     */
+    private void stepSpring(float t) {
+        float omega = mSpringOmega;
+        float decay = (float) Math.exp(-omega * t);
+        float maxDistance = 0f;
+        float maxVelocity = 0f;
+
+        for (int i = 0; i < EDGES; i++) {
+            float d0 = mSpringPosition[i] - mSpringTarget[i];
+            float v0 = mSpringVelocity[i];
+            float c = v0 + omega * d0;
+
+            float d = (d0 + c * t) * decay;
+            float v = (v0 - omega * c * t) * decay;
+
+            mSpringPosition[i] = mSpringTarget[i] + d;
+            mSpringVelocity[i] = v;
+            maxDistance = Math.max(maxDistance, Math.abs(d));
+            maxVelocity = Math.max(maxVelocity, Math.abs(v));
+        }
+
+        boolean atRest = maxDistance < REST_DISTANCE && maxVelocity < REST_VELOCITY;
+        if (atRest) {
+            System.arraycopy(mSpringTarget, 0, mSpringPosition, 0, EDGES);
+        }
+
+        mCurrentRect.set(
+                Math.round(mSpringPosition[0]), Math.round(mSpringPosition[1]),
+                Math.round(mSpringPosition[2]), Math.round(mSpringPosition[3]));
+        mProgress = atRest || mSpringStartDistance == 0f
+                ? 1f
+                : Math.max(0f, 1f - maxDistance / mSpringStartDistance);
+        updateLayers();
+
+        if (!mArrived && maxDistance <= mSettleThreshold) {
+            arrive();
+
+            if (!mArrived) {
+                // Retargeted by listener
+                return;
+            }
+        }
+
+        if (atRest) {
+            mAnimator.end();
+        }
+    }
+
+    private static void setEdges(float[] edges, Rect rect) {
+        edges[0] = rect.left;
+        edges[1] = rect.top;
+        edges[2] = rect.right;
+        edges[3] = rect.bottom;
+    }
+
+    void setVisible(boolean visible) {
+        mVisible = visible;
+
+        for (int i = 0; i < mLayers.size(); i++) {
+            mLayers.get(i).getDrawable().setVisible(visible, false);
+        }
+    }
+
+    /**
+     * Draws visible layers of given z-order.
+     *
+     * @param canvas canvas of host
+     * @param zOrder z-order of layers to draw
+     */
+    void draw(@NonNull Canvas canvas, @SelectorLayer.ZOrder int zOrder) {
+        for (int i = 0; i < mLayers.size(); i++) {
+            SelectorLayer layer = mLayers.get(i);
+            Drawable drawable = layer.getDrawable();
+
+            if (layer.getZOrder() == zOrder && drawable.isVisible()) {
+                drawable.draw(canvas);
+            }
+        }
+    }
+
+    private void update(float fraction) {
+        mProgress = fraction;
+        mCurrentRect.set(mEvaluator.evaluate(fraction, mSourceRect, mDestRect));
+        updateLayers();
+    }
+
+    private void updateLayers() {
+        mUpdatingBounds = true;
+        for (int i = 0; i < mLayers.size(); i++) {
+            applyBounds(mLayers.get(i));
+        }
+        mUpdatingBounds = false;
+
+        mHost.invalidate();
+
+        if (mListener != null) {
+            mListener.onSelectorProgress(mProgress);
+        }
+    }
+
+    private void applyBounds(SelectorLayer layer) {
+        if (mSpring) {
+            // Spring has its own trajectory, layers just follow it
+            mLayerRect.set(mCurrentRect);
+        } else {
+            mLayerRect.set(mEvaluator.evaluate(
+                    layer.interpolate(mProgress), mSourceRect, mDestRect));
+        }
+
+        layer.applyInsets(mLayerRect);
+        layer.getDrawable().setBounds(mLayerRect);
+    }
+
+    private void arrive() {
+        mArrived = true;
+
+        if (mListener != null) {
+            mListener.onSelectorArrived();
+        }
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        if (!mUpdatingBounds) {
+            mHost.invalidate(who.getBounds());
+        }
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        Handler handler = mHost.getHandler();
+        if (handler != null) {
+            handler.postAtTime(what, who, when);
+        }
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        Handler handler = mHost.getHandler();
+        if (handler != null) {
+            handler.removeCallbacks(what, who);
+        }
+    }
+}
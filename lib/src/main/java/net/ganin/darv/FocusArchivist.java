@@ -56,6 +56,31 @@ class FocusArchivist {
         mLastSelectedId = rv.getChildItemId(child);
     }
 
+    /**
+     * Remember entity which was focused before state of RecyclerView was restored.
+     *
+     * @param pos Item's position.
+     * @param id Item's id.
+     */
+    void restoreFocus(int pos, long id) {
+        mLastSelectedPos = pos;
+        mLastSelectedId = id;
+    }
+
+    /**
+     * @return Adapter position of last focused item.
+     */
+    int getLastSelectedPos() {
+        return mLastSelectedPos;
+    }
+
+    /**
+     * @return Id of last focused item.
+     */
+    long getLastSelectedId() {
+        return mLastSelectedId;
+    }
+
     /**
      * Gets last focused view.
      *
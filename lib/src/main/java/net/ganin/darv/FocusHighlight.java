@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Focus highlight effect for items of {@link DpadAwareRecyclerView}: focused item is scaled up
+ * and raised, other items can be dimmed. Effect is applied through render properties only
+ * (scale, translation Z and alpha), so it never causes measure or layout.
+ * <p>
+ * Changes of parameters take effect on next focus change.
+ *
+ * @see DpadAwareRecyclerView#setFocusHighlight(FocusHighlight)
+ */
+public class FocusHighlight {
+
+    private float mScale;
+    private float mElevation;
+    private float mUnfocusedAlpha;
+
+    /**
+     * @param scale          scale of focused item, 1 for no scaling
+     * @param elevation      translation Z of focused item in px. Has no effect before Lollipop
+     * @param unfocusedAlpha alpha of items which aren't focused, 1 for no dimming
+     */
+    public FocusHighlight(float scale, float elevation,
+            @FloatRange(from = 0.0, to = 1.0) float unfocusedAlpha) {
+        setScale(scale);
+        setElevation(elevation);
+        setUnfocusedAlpha(unfocusedAlpha);
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    /**
+     * @param scale scale of focused item, 1 for no scaling
+     */
+    public void setScale(float scale) {
+        if (scale <= 0f) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+
+        mScale = scale;
+    }
+
+    public float getElevation() {
+        return mElevation;
+    }
+
+    /**
+     * @param elevation translation Z of focused item in px
+     */
+    public void setElevation(float elevation) {
+        mElevation = elevation;
+    }
+
+    public float getUnfocusedAlpha() {
+        return mUnfocusedAlpha;
+    }
+
+    /**
+     * @param unfocusedAlpha alpha of items which aren't focused, 1 for no dimming
+     */
+    public void setUnfocusedAlpha(@FloatRange(from = 0.0, to = 1.0) float unfocusedAlpha) {
+        if (unfocusedAlpha < 0f || unfocusedAlpha > 1f) {
+            throw new IllegalArgumentException("Alpha must be in range [0; 1]");
+        }
+
+        mUnfocusedAlpha = unfocusedAlpha;
+    }
+
+    /**
+     * Applies effect to item.
+     *
+     * @param view  item view
+     * @param level 0 for unfocused item, 1 for focused one
+     */
+    void apply(@NonNull View view, float level) {
+        float scale = 1f + (mScale - 1f) * level;
+        view.setScaleX(scale);
+        view.setScaleY(scale);
+        ViewCompat.setTranslationZ(view, mElevation * level);
+        view.setAlpha(mUnfocusedAlpha + (1f - mUnfocusedAlpha) * level);
+    }
+
+    /**
+     * Removes effect from item.
+     *
+     * @param view item view
+     */
+    static void reset(@NonNull View view) {
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+        ViewCompat.setTranslationZ(view, 0f);
+        view.setAlpha(1f);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Storage of last focused items which outlives the process. Records are keyed by screen and
+ * list within that screen.
+ * <p>
+ * Both methods are called on main thread and must not block on I/O.
+ *
+ * @see DpadAwareRecyclerView#setFocusStore(FocusStore, String, String)
+ * @see FileFocusStore
+ */
+public interface FocusStore {
+
+    /**
+     * Last focused item of some list.
+     */
+    final class Record {
+
+        private final long mStableId;
+        private final int mPosition;
+        private final int mScrollOffset;
+
+        /**
+         * @param stableId     item id, {@link android.support.v7.widget.RecyclerView#NO_ID} if
+         *                     adapter has no stable ids
+         * @param position     adapter position of item
+         * @param scrollOffset offset of item from start edge of list (end edge if layout is
+         *                     reversed), {@link Integer#MIN_VALUE} if unknown
+         */
+        public Record(long stableId, int position, int scrollOffset) {
+            mStableId = stableId;
+            mPosition = position;
+            mScrollOffset = scrollOffset;
+        }
+
+        public long getStableId() {
+            return mStableId;
+        }
+
+        public int getPosition() {
+            return mPosition;
+        }
+
+        public int getScrollOffset() {
+            return mScrollOffset;
+        }
+    }
+
+    /**
+     * Gets record of list.
+     *
+     * @param screenKey key of screen
+     * @param listKey   key of list within screen
+     * @return record or null if it is unknown or not available without blocking
+     */
+    @Nullable
+    Record get(@NonNull String screenKey, @NonNull String listKey);
+
+    /**
+     * Puts record of list.
+     *
+     * @param screenKey key of screen
+     * @param listKey   key of list within screen
+     * @param record    record to store
+     */
+    void put(@NonNull String screenKey, @NonNull String listKey, @NonNull Record record);
+}
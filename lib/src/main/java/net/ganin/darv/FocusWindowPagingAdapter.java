@@ -0,0 +1,510 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Adapter that loads its data page by page from a {@link PageSource}.
+ *
+ * <p>Loaded pages form a sliding window centered on the focused item of the attached
+ * {@link DpadAwareRecyclerView} rather than on the visible range. Positions whose page is not
+ * loaded yet are bound as placeholders, their pages are loaded and they are rebound with
+ * {@link #PAYLOAD_PAGE_LOADED} once the page arrives. Window moves only when focus moves. Pages
+ * far from focus are evicted when more than {@link #setMaxLoadedPages(int) max loaded pages} are
+ * held, and pending loads which fell out of the window (e.g. after
+ * {@link DpadAwareRecyclerView#setSelection(int)} or circular jump of
+ * {@link ExtGridLayoutManager}) are cancelled. Pages of attached items are neither evicted nor
+ * cancelled.
+ *
+ * @param <T>  item type
+ * @param <VH> view holder type
+ */
+public abstract class FocusWindowPagingAdapter<T, VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<VH> implements ViewTreeObserver.OnGlobalFocusChangeListener {
+
+    /**
+     * Source of paged data. All methods are called on background executor.
+     *
+     * @param <T> item type
+     */
+    public interface PageSource<T> {
+        /**
+         * @return total number of items
+         */
+        int getItemCount();
+
+        /**
+         * Load one page of items.
+         *
+         * @param startPosition adapter position of the first item in the page
+         * @param loadSize      number of items to load
+         * @return loaded items, should contain {@code loadSize} items
+         */
+        @NonNull
+        List<T> loadPage(int startPosition, int loadSize);
+    }
+
+    /**
+     * Payload passed to {@link #onBindViewHolder(RecyclerView.ViewHolder, int, List)} when
+     * placeholder position receives its loaded item.
+     */
+    public static final Object PAYLOAD_PAGE_LOADED = new Object();
+
+    private static final String TAG = "FocusWindowPaging";
+
+    private static final int DEFAULT_WINDOW_PAGES = 2;
+
+    private final class PageLoadTask extends FutureTask<List<T>> {
+
+        final int mPage;
+
+        PageLoadTask(int page, Callable<List<T>> callable) {
+            super(callable);
+            mPage = page;
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoadDone(PageLoadTask.this);
+                    }
+                });
+            }
+        }
+    }
+
+    private final class CountLoadTask extends FutureTask<Integer> {
+
+        CountLoadTask(Callable<Integer> callable) {
+            super(callable);
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onCountLoadDone(CountLoadTask.this);
+                    }
+                });
+            }
+        }
+    }
+
+    private final PageSource<T> mSource;
+    private final int mPageSize;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    private int mWindowPages = DEFAULT_WINDOW_PAGES;
+    private int mMaxLoadedPages = 2 * (2 * DEFAULT_WINDOW_PAGES + 1);
+
+    private final SparseArray<List<T>> mPages = new SparseArray<>();
+    private final SparseArray<PageLoadTask> mPendingPages = new SparseArray<>();
+    private CountLoadTask mPendingCount;
+
+    private int mItemCount = 0;
+    private boolean mCountLoaded = false;
+    private int mCenterPage = 0;
+
+    @Nullable
+    private RecyclerView mRecyclerView;
+
+    private final SparseBooleanArray mAttachedPages = new SparseBooleanArray();
+
+    /**
+     * Tracks focus only while list is in window, since view tree observer doesn't survive
+     * window reattachment.
+     */
+    private final View.OnAttachStateChangeListener mWindowListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                    v.getViewTreeObserver().addOnGlobalFocusChangeListener(
+                            FocusWindowPagingAdapter.this);
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    v.getViewTreeObserver().removeOnGlobalFocusChangeListener(
+                            FocusWindowPagingAdapter.this);
+                }
+            };
+
+    /**
+     * @param source   data source
+     * @param pageSize number of items in one page
+     */
+    public FocusWindowPagingAdapter(@NonNull PageSource<T> source, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be > 0");
+        }
+
+        mSource = source;
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Sets executor which loads pages. Default is {@link AsyncTask#THREAD_POOL_EXECUTOR}.
+     *
+     * @param executor background executor
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Sets number of pages kept loaded on each side of the focused page.
+     *
+     * @param windowPages pages on each side of focus
+     */
+    public void setWindowPages(int windowPages) {
+        if (windowPages < 0) {
+            throw new IllegalArgumentException("Window pages must be >= 0");
+        }
+
+        mWindowPages = windowPages;
+        mMaxLoadedPages = Math.max(mMaxLoadedPages, 2 * windowPages + 1);
+    }
+
+    /**
+     * Gets number of pages kept loaded on each side of the focused page.
+     *
+     * @return pages on each side of focus
+     */
+    public int getWindowPages() {
+        return mWindowPages;
+    }
+
+    /**
+     * Sets memory budget in pages. Pages farthest from focus are evicted when budget is exceeded.
+     * Budget never goes below the window size.
+     *
+     * @param maxLoadedPages maximum number of loaded pages
+     */
+    public void setMaxLoadedPages(int maxLoadedPages) {
+        mMaxLoadedPages = Math.max(maxLoadedPages, 2 * mWindowPages + 1);
+        evictOverBudget();
+    }
+
+    /**
+     * Gets memory budget in pages.
+     *
+     * @return maximum number of loaded pages
+     */
+    public int getMaxLoadedPages() {
+        return mMaxLoadedPages;
+    }
+
+    /**
+     * Gets page size.
+     *
+     * @return number of items in one page
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Drops all loaded pages and reloads item count from the source.
+     */
+    public void refresh() {
+        cancelPendingLoads();
+        mPages.clear();
+
+        mPendingCount = new CountLoadTask(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return mSource.getItemCount();
+            }
+        });
+        mExecutor.execute(mPendingCount);
+    }
+
+    /**
+     * Gets item at position. Nothing is loaded, bound positions get their pages loaded in
+     * {@link #onBindViewHolder(RecyclerView.ViewHolder, int)}.
+     *
+     * @param position adapter position
+     * @return item or null if it is not loaded yet
+     */
+    @Nullable
+    public T getItem(int position) {
+        int page = position / mPageSize;
+
+        List<T> items = mPages.get(page);
+        if (items == null) {
+            return null;
+        }
+
+        int index = position - page * mPageSize;
+        return index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * Checks whether item at position is loaded.
+     *
+     * @param position adapter position
+     * @return true if item's page is loaded
+     */
+    public boolean isItemLoaded(int position) {
+        return mPages.get(position / mPageSize) != null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    @Override
+    public final void onBindViewHolder(VH holder, int position) {
+        T item = getItem(position);
+        if (item == null) {
+            requestPage(position / mPageSize);
+            onBindPlaceholder(holder, position);
+        } else {
+            onBindItem(holder, position, item);
+        }
+    }
+
+    /**
+     * Bind loaded item.
+     *
+     * @param holder   view holder
+     * @param position adapter position
+     * @param item     loaded item
+     */
+    public abstract void onBindItem(VH holder, int position, @NonNull T item);
+
+    /**
+     * Bind lightweight placeholder for position whose page is not loaded yet.
+     *
+     * @param holder   view holder
+     * @param position adapter position
+     */
+    public abstract void onBindPlaceholder(VH holder, int position);
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+
+        mRecyclerView = recyclerView;
+        recyclerView.addOnAttachStateChangeListener(mWindowListener);
+        if (recyclerView.getWindowToken() != null) {
+            mWindowListener.onViewAttachedToWindow(recyclerView);
+        }
+
+        if (!mCountLoaded && mPendingCount == null) {
+            refresh();
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+
+        recyclerView.removeOnAttachStateChangeListener(mWindowListener);
+        if (recyclerView.getWindowToken() != null) {
+            mWindowListener.onViewDetachedFromWindow(recyclerView);
+        }
+        mRecyclerView = null;
+        cancelPendingLoads();
+    }
+
+    @Override
+    public void onGlobalFocusChanged(View oldFocus, View newFocus) {
+        RecyclerView rv = mRecyclerView;
+        if (rv == null || newFocus == null) {
+            return;
+        }
+
+        View itemView = rv.findContainingItemView(newFocus);
+        if (itemView != null) {
+            int position = rv.getChildAdapterPosition(itemView);
+            if (position != RecyclerView.NO_POSITION) {
+                moveWindow(position / mPageSize);
+            }
+        }
+    }
+
+    /**
+     * Centers window on the page, cancels pending loads outside of it and prefetches pages
+     * inside of it starting from the center.
+     *
+     * @param centerPage page to center window on
+     */
+    private void moveWindow(int centerPage) {
+        mCenterPage = centerPage;
+        collectAttachedPages();
+
+        for (int i = mPendingPages.size() - 1; i >= 0; i--) {
+            int page = mPendingPages.keyAt(i);
+            if (Math.abs(page - centerPage) > mWindowPages && !mAttachedPages.get(page)) {
+                mPendingPages.valueAt(i).cancel(true);
+                mPendingPages.removeAt(i);
+            }
+        }
+
+        requestPage(centerPage);
+        for (int i = 1; i <= mWindowPages; i++) {
+            requestPage(centerPage + i);
+            requestPage(centerPage - i);
+        }
+    }
+
+    private void requestPage(int page) {
+        int start = page * mPageSize;
+        if (page < 0 || start >= mItemCount
+                || mPages.get(page) != null || mPendingPages.get(page) != null) {
+            return;
+        }
+
+        final int loadStart = start;
+        final int loadSize = Math.min(mPageSize, mItemCount - start);
+        PageLoadTask task = new PageLoadTask(page, new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return mSource.loadPage(loadStart, loadSize);
+            }
+        });
+
+        mPendingPages.put(page, task);
+        mExecutor.execute(task);
+    }
+
+    private void onPageLoadDone(PageLoadTask task) {
+        int page = task.mPage;
+        if (mPendingPages.get(page) != task) {
+            // Cancelled or superseded by refresh
+            return;
+        }
+
+        mPendingPages.remove(page);
+
+        List<T> items;
+        try {
+            items = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Page will be requested again on next bind
+            Log.w(TAG, "Failed to load page " + page, e);
+            return;
+        }
+
+        mPages.put(page, items);
+        evictOverBudget();
+
+        int start = page * mPageSize;
+        int count = Math.min(items.size(), mItemCount - start);
+        if (count > 0) {
+            notifyItemRangeChanged(start, count, PAYLOAD_PAGE_LOADED);
+        }
+    }
+
+    private void onCountLoadDone(CountLoadTask task) {
+        if (mPendingCount != task) {
+            return;
+        }
+
+        mPendingCount = null;
+
+        try {
+            mItemCount = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.w(TAG, "Failed to load item count", e);
+            return;
+        }
+
+        mCountLoaded = true;
+        notifyDataSetChanged();
+    }
+
+    private void evictOverBudget() {
+        collectAttachedPages();
+
+        while (mPages.size() > mMaxLoadedPages) {
+            int farthestIndex = 0;
+            int farthestDistance = -1;
+            for (int i = 0; i < mPages.size(); i++) {
+                int page = mPages.keyAt(i);
+                int distance = Math.abs(page - mCenterPage);
+                if (distance > farthestDistance && !mAttachedPages.get(page)) {
+                    farthestDistance = distance;
+                    farthestIndex = i;
+                }
+            }
+
+            if (farthestDistance <= mWindowPages) {
+                // Never evict pages inside of the window or pages of attached items
+                return;
+            }
+
+            mPages.removeAt(farthestIndex);
+        }
+    }
+
+    /**
+     * Collects pages which hold positions of attached children.
+     */
+    private void collectAttachedPages() {
+        mAttachedPages.clear();
+
+        RecyclerView rv = mRecyclerView;
+        if (rv == null) {
+            return;
+        }
+
+        for (int i = 0; i < rv.getChildCount(); i++) {
+            int position = rv.getChildAdapterPosition(rv.getChildAt(i));
+            if (position != RecyclerView.NO_POSITION) {
+                mAttachedPages.put(position / mPageSize, true);
+            }
+        }
+    }
+
+    private void cancelPendingLoads() {
+        for (int i = 0; i < mPendingPages.size(); i++) {
+            mPendingPages.valueAt(i).cancel(true);
+        }
+        mPendingPages.clear();
+
+        if (mPendingCount != null) {
+            mPendingCount.cancel(true);
+            mPendingCount = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.Nullable;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Helper methods which map adapter positions to grid cells of a layout manager.
+ *
+ * <p>Span group is a row in vertical grid (column in horizontal one), span index is a cell
+ * within that group. Non-grid layout managers are treated as grids with single span.
+ */
+final class GridGeometry {
+
+    private GridGeometry() {
+    }
+
+    /**
+     * Gets span count of layout manager.
+     *
+     * @param lm layout manager
+     * @return span count, 1 if layout manager is not a grid
+     */
+    static int getSpanCount(@Nullable RecyclerView.LayoutManager lm) {
+        if (lm instanceof GridLayoutManager) {
+            return Math.max(1, ((GridLayoutManager) lm).getSpanCount());
+        }
+
+        return 1;
+    }
+
+    /**
+     * Gets span group index of adapter position.
+     *
+     * @param lm       layout manager
+     * @param position adapter position
+     * @return span group index
+     */
+    static int getSpanGroupIndex(@Nullable RecyclerView.LayoutManager lm, int position) {
+        if (lm instanceof GridLayoutManager) {
+            GridLayoutManager glm = (GridLayoutManager) lm;
+            GridLayoutManager.SpanSizeLookup lookup = glm.getSpanSizeLookup();
+            int spanCount = getSpanCount(glm);
+
+            // Default lookup computes group index by iterating over all preceding positions
+            if (lookup instanceof GridLayoutManager.DefaultSpanSizeLookup) {
+                return position / spanCount;
+            }
+
+            return lookup.getSpanGroupIndex(position, spanCount);
+        }
+
+        return position;
+    }
+
+    /**
+     * Gets span index of adapter position within its span group.
+     *
+     * @param lm       layout manager
+     * @param position adapter position
+     * @return span index
+     */
+    static int getSpanIndex(@Nullable RecyclerView.LayoutManager lm, int position) {
+        if (lm instanceof GridLayoutManager) {
+            GridLayoutManager glm = (GridLayoutManager) lm;
+            return glm.getSpanSizeLookup().getSpanIndex(position, getSpanCount(glm));
+        }
+
+        return 0;
+    }
+}
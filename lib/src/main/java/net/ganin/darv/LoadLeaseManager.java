@@ -0,0 +1,488 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs background loads on behalf of view holders of {@link DpadAwareRecyclerView}, e.g. image
+ * or metadata loads started from {@link RecyclerView.Adapter#onBindViewHolder}.
+ * <p>
+ * Each holder has at most one lease, which stands for one bind of the holder, so adapter should
+ * call {@link #lease} or {@link #release} on every bind of holder it has ever leased. Lease is
+ * cancelled when holder is leased again or released. Its load is suspended when view is
+ * detached, e.g. scrolled off screen or recycled, and when list is detached from window, and it
+ * is resumed if view is attached back without rebind, e.g. from item view cache or when list
+ * returns to window. Result is delivered on main thread only if the lease is still the current
+ * bind of holder.
+ * <p>
+ * Loads run on bounded pool of threads and wait in queue ordered by grid distance from selected
+ * item, which is refreshed on every selection change, so fast navigation doesn't leave workers
+ * busy with items which are already gone. If adapter has stable ids, holders leased for the
+ * same id share one load.
+ */
+public class LoadLeaseManager {
+
+    /**
+     * Load of one item.
+     *
+     * @param <R> result type
+     */
+    public interface Load<R> {
+        /**
+         * Loads result. Called on background thread.
+         *
+         * @return result
+         * @throws Exception if load failed, nothing is delivered then
+         */
+        @Nullable
+        R load() throws Exception;
+
+        /**
+         * Delivers result to holder which is still bound to the same item. Called on main thread.
+         *
+         * @param holder view holder
+         * @param result loaded result
+         */
+        void onLoaded(@NonNull RecyclerView.ViewHolder holder, @Nullable R result);
+    }
+
+    private static final String TAG = "LoadLeaseManager";
+
+    /**
+     * Default number of load threads.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 2;
+
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
+    private static final class Lease {
+
+        final RecyclerView.ViewHolder mHolder;
+        final Load<?> mLoad;
+        final long mId;
+
+        /* Null while lease is suspended */
+        @Nullable
+        LoadTask mTask;
+
+        Lease(RecyclerView.ViewHolder holder, Load<?> load, long id) {
+            mHolder = holder;
+            mLoad = load;
+            mId = id;
+        }
+    }
+
+    private final class LoadTask extends FutureTask<Object> implements Comparable<LoadTask> {
+
+        final long mId;
+        final long mSequence;
+        final ArrayList<Lease> mLeases = new ArrayList<>();
+
+        /* Changed only while task is out of queue */
+        int mDistance;
+
+        LoadTask(long id, long sequence, Callable<Object> callable) {
+            super(callable);
+            mId = id;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(@NonNull LoadTask another) {
+            if (mDistance != another.mDistance) {
+                return mDistance < another.mDistance ? -1 : 1;
+            }
+
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoadDone(LoadTask.this);
+                    }
+                });
+            }
+        }
+    }
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final HashMap<RecyclerView.ViewHolder, Lease> mLeases = new HashMap<>();
+    private final ArrayList<LoadTask> mTasks = new ArrayList<>();
+    private final LongSparseArray<LoadTask> mTasksById = new LongSparseArray<>();
+    private long mSequence = 0;
+
+    @Nullable
+    private DpadAwareRecyclerView mRecyclerView;
+
+    private final RecyclerView.OnChildAttachStateChangeListener mChildListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    RecyclerView rv = mRecyclerView;
+                    if (rv != null) {
+                        resumeLease(rv.getChildViewHolder(view));
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    RecyclerView rv = mRecyclerView;
+                    if (rv != null) {
+                        suspendLease(rv.getChildViewHolder(view));
+                    }
+                }
+            };
+
+    private final View.OnAttachStateChangeListener mWindowListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                    resumeAttachedLeases();
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    suspendAllLeases();
+                }
+            };
+
+    private final DpadAwareRecyclerView.OnItemSelectedListener mSelectionListener =
+            new DpadAwareRecyclerView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                }
+
+                @Override
+                public void onItemFocused(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                    reprioritize(position);
+                }
+            };
+
+    public LoadLeaseManager() {
+        this(DEFAULT_THREAD_COUNT);
+    }
+
+    /**
+     * @param threadCount maximum number of loads running at once
+     */
+    public LoadLeaseManager(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be > 0");
+        }
+
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Ties leases to lifecycle of list. Leases of previously attached list are cancelled.
+     *
+     * @param rv list or null to detach
+     */
+    public void attachToRecyclerView(@Nullable DpadAwareRecyclerView rv) {
+        if (mRecyclerView == rv) {
+            return;
+        }
+
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnChildAttachStateChangeListener(mChildListener);
+            mRecyclerView.removeOnAttachStateChangeListener(mWindowListener);
+            mRecyclerView.removeOnItemSelectedListener(mSelectionListener);
+            cancelAll();
+        }
+
+        mRecyclerView = rv;
+
+        if (rv != null) {
+            rv.addOnChildAttachStateChangeListener(mChildListener);
+            rv.addOnAttachStateChangeListener(mWindowListener);
+            rv.addOnItemSelectedListener(mSelectionListener);
+        }
+    }
+
+    /**
+     * Starts load for holder, usually from {@link RecyclerView.Adapter#onBindViewHolder}.
+     * Previous lease of holder is cancelled.
+     *
+     * @param holder view holder bound to item
+     * @param load   load of item
+     * @param <R>    result type
+     * @throws IllegalStateException if manager is not attached to list
+     */
+    public <R> void lease(@NonNull RecyclerView.ViewHolder holder, @NonNull Load<R> load) {
+        if (mRecyclerView == null) {
+            throw new IllegalStateException("LoadLeaseManager is not attached to RecyclerView");
+        }
+
+        release(holder);
+
+        Lease lease = new Lease(holder, load, holder.getItemId());
+        mLeases.put(holder, lease);
+        schedule(lease);
+    }
+
+    /**
+     * Cancels lease of holder, e.g. when holder is bound to item which needs no load.
+     *
+     * @param holder view holder
+     */
+    public void release(@NonNull RecyclerView.ViewHolder holder) {
+        Lease lease = mLeases.remove(holder);
+        if (lease != null) {
+            detachLease(lease);
+        }
+    }
+
+    /**
+     * Cancels all leases.
+     */
+    public void cancelAll() {
+        for (int i = 0; i < mTasks.size(); i++) {
+            LoadTask task = mTasks.get(i);
+            task.cancel(true);
+            mExecutor.remove(task);
+        }
+
+        mTasks.clear();
+        mTasksById.clear();
+        mLeases.clear();
+    }
+
+    /**
+     * @return number of loads which are queued or running
+     */
+    public int getPendingLoadCount() {
+        return mTasks.size();
+    }
+
+    private void schedule(Lease lease) {
+        LoadTask task = lease.mId != RecyclerView.NO_ID ? mTasksById.get(lease.mId) : null;
+
+        if (task != null && mExecutor.remove(task)) {
+            // Shared task is still queued, move it up if this lease is closer to selection
+            task.mLeases.add(lease);
+            task.mDistance = computeDistance(task);
+            mExecutor.execute(task);
+        } else if (task != null) {
+            task.mLeases.add(lease);
+        } else {
+            final Load<?> load = lease.mLoad;
+            task = new LoadTask(lease.mId, mSequence++, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return load.load();
+                }
+            });
+            task.mLeases.add(lease);
+            task.mDistance = computeDistance(task);
+
+            mTasks.add(task);
+            if (lease.mId != RecyclerView.NO_ID) {
+                mTasksById.put(lease.mId, task);
+            }
+            mExecutor.execute(task);
+        }
+
+        lease.mTask = task;
+    }
+
+    private void suspendLease(RecyclerView.ViewHolder holder) {
+        Lease lease = mLeases.get(holder);
+        if (lease != null) {
+            detachLease(lease);
+        }
+    }
+
+    /**
+     * Stops all loads but keeps leases, so they can be resumed when list returns to window.
+     */
+    private void suspendAllLeases() {
+        for (Lease lease : mLeases.values()) {
+            detachLease(lease);
+        }
+    }
+
+    /**
+     * Resumes leases of children, since list doesn't report its children attached when it
+     * returns to window itself.
+     */
+    private void resumeAttachedLeases() {
+        RecyclerView rv = mRecyclerView;
+        if (rv == null) {
+            return;
+        }
+
+        for (int i = 0; i < rv.getChildCount(); i++) {
+            resumeLease(rv.getChildViewHolder(rv.getChildAt(i)));
+        }
+    }
+
+    private void resumeLease(RecyclerView.ViewHolder holder) {
+        Lease lease = mLeases.get(holder);
+        if (lease != null && lease.mTask == null && isStillBound(lease)) {
+            schedule(lease);
+        }
+    }
+
+    /**
+     * Detaches lease from its task and cancels task if no other lease needs it.
+     */
+    private void detachLease(Lease lease) {
+        LoadTask task = lease.mTask;
+        lease.mTask = null;
+
+        if (task == null) {
+            return;
+        }
+
+        task.mLeases.remove(lease);
+        if (task.mLeases.isEmpty()) {
+            task.cancel(true);
+            mExecutor.remove(task);
+            removeTask(task);
+        }
+    }
+
+    private void removeTask(LoadTask task) {
+        mTasks.remove(task);
+        if (task.mId != RecyclerView.NO_ID && mTasksById.get(task.mId) == task) {
+            mTasksById.remove(task.mId);
+        }
+    }
+
+    private void reprioritize(int selectedPosition) {
+        if (selectedPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        for (int i = 0; i < mTasks.size(); i++) {
+            LoadTask task = mTasks.get(i);
+
+            // Tasks taken by workers already are left alone
+            if (mExecutor.remove(task)) {
+                task.mDistance = computeDistance(task, selectedPosition);
+                mExecutor.execute(task);
+            }
+        }
+    }
+
+    private int computeDistance(LoadTask task) {
+        DpadAwareRecyclerView rv = mRecyclerView;
+        return computeDistance(task,
+                rv != null ? rv.getSelectedItemPosition() : RecyclerView.NO_POSITION);
+    }
+
+    /**
+     * Computes grid distance from selected item to the closest item which needs task.
+     */
+    private int computeDistance(LoadTask task, int selectedPosition) {
+        DpadAwareRecyclerView rv = mRecyclerView;
+        if (rv == null || selectedPosition == RecyclerView.NO_POSITION) {
+            return 0;
+        }
+
+        RecyclerView.LayoutManager lm = rv.getLayoutManager();
+        int selectedGroup = GridGeometry.getSpanGroupIndex(lm, selectedPosition);
+        int selectedSpan = GridGeometry.getSpanIndex(lm, selectedPosition);
+
+        int distance = Integer.MAX_VALUE;
+        for (int i = 0; i < task.mLeases.size(); i++) {
+            int position = task.mLeases.get(i).mHolder.getLayoutPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+
+            int groupDelta = GridGeometry.getSpanGroupIndex(lm, position) - selectedGroup;
+            int spanDelta = GridGeometry.getSpanIndex(lm, position) - selectedSpan;
+            distance = Math.min(distance, Math.abs(groupDelta) + Math.abs(spanDelta));
+        }
+
+        return distance;
+    }
+
+    /**
+     * Lease itself is the bind token, it is replaced on every bind. Stable id is checked as well,
+     * in case adapter rebinds holder without leasing it again.
+     */
+    private boolean isStillBound(Lease lease) {
+        if (mLeases.get(lease.mHolder) != lease) {
+            return false;
+        }
+
+        return lease.mId == RecyclerView.NO_ID || lease.mHolder.getItemId() == lease.mId;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onLoadDone(LoadTask task) {
+        if (!mTasks.contains(task)) {
+            // Cancelled after it had finished
+            return;
+        }
+
+        removeTask(task);
+
+        Object result;
+        try {
+            result = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Holders keep their placeholders and lease again on next bind
+            Log.w(TAG, "Failed to load item " + task.mId, e);
+            for (int i = 0; i < task.mLeases.size(); i++) {
+                mLeases.remove(task.mLeases.get(i).mHolder);
+            }
+            return;
+        }
+
+        for (int i = 0; i < task.mLeases.size(); i++) {
+            Lease lease = task.mLeases.get(i);
+            RecyclerView.ViewHolder holder = lease.mHolder;
+
+            if (isStillBound(lease)) {
+                mLeases.remove(holder);
+                ((Load<Object>) lease.mLoad).onLoaded(holder, result);
+            } else if (mLeases.get(holder) == lease) {
+                mLeases.remove(holder);
+            }
+        }
+    }
+}
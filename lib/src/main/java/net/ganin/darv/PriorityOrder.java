@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * Adapter positions ordered by grid distance from the selected position.
+ *
+ * <p>Distance is measured in grid cells. Steps against current navigation direction cost
+ * {@link #BEHIND_WEIGHT} times more than steps along it, so items the user is heading to come
+ * first. Instance is reused between updates, so it must not be retained by listeners.
+ *
+ * @see DpadAwareRecyclerView#setOnPriorityOrderChangedListener
+ */
+public final class PriorityOrder {
+
+    /**
+     * Cost of one cell step against navigation direction.
+     */
+    public static final int BEHIND_WEIGHT = 2;
+
+    private static final long POSITION_MASK = 0xffffffffL;
+
+    /**
+     * Packed entries: distance in upper 32 bits, position in lower 32 bits. Sorting packed values
+     * orders entries by distance first and by position second.
+     */
+    private long[] mEntries = new long[0];
+    private int mSize = 0;
+    private int mSelectedPosition = RecyclerView.NO_POSITION;
+
+    PriorityOrder() {
+    }
+
+    /**
+     * @return number of ordered positions
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return position distances are measured from
+     */
+    public int getSelectedPosition() {
+        return mSelectedPosition;
+    }
+
+    /**
+     * Gets adapter position by its priority index.
+     *
+     * @param index priority index, 0 is the most important
+     * @return adapter position
+     */
+    public int getPosition(int index) {
+        enforceIndexBounds(index);
+        return (int) (mEntries[index] & POSITION_MASK);
+    }
+
+    /**
+     * Gets weighted grid distance of position by its priority index.
+     *
+     * @param index priority index, 0 is the most important
+     * @return weighted distance from selected position
+     */
+    public int getDistance(int index) {
+        enforceIndexBounds(index);
+        return (int) (mEntries[index] >>> 32);
+    }
+
+    /**
+     * Recompute order for positions in range.
+     *
+     * @param lm               layout manager to take grid geometry from
+     * @param selectedPosition position distances are measured from
+     * @param first            first position in range, inclusive
+     * @param last             last position in range, inclusive
+     * @param groupDirection   navigation direction across span groups: -1, 0 or 1
+     * @param spanDirection    navigation direction within span group: -1, 0 or 1
+     */
+    void update(@NonNull RecyclerView.LayoutManager lm, int selectedPosition, int first, int last,
+            int groupDirection, int spanDirection) {
+        mSelectedPosition = selectedPosition;
+        mSize = 0;
+
+        if (first > last) {
+            return;
+        }
+
+        ensureCapacity(last - first + 1);
+
+        int selectedGroup = GridGeometry.getSpanGroupIndex(lm, selectedPosition);
+        int selectedSpan = GridGeometry.getSpanIndex(lm, selectedPosition);
+
+        for (int position = first; position <= last; position++) {
+            int groupDelta = GridGeometry.getSpanGroupIndex(lm, position) - selectedGroup;
+            int spanDelta = GridGeometry.getSpanIndex(lm, position) - selectedSpan;
+            long distance = weight(groupDelta, groupDirection) + weight(spanDelta, spanDirection);
+
+            mEntries[mSize++] = (distance << 32) | (position & POSITION_MASK);
+        }
+
+        Arrays.sort(mEntries, 0, mSize);
+    }
+
+    private static int weight(int delta, int direction) {
+        int steps = Math.abs(delta);
+        boolean behind = direction != 0 && delta != 0 && (delta > 0) != (direction > 0);
+        return behind ? steps * BEHIND_WEIGHT : steps;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (mEntries.length < capacity) {
+            mEntries = new long[capacity];
+        }
+    }
+
+    private void enforceIndexBounds(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Passed index is not in valid range which is"
+                    + " [0; " + mSize + ").");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+
+/**
+ * Policy which places selected item along main axis of {@link ExtGridLayoutManager}. Final
+ * place is computed once per navigation step, so that step costs exactly one scroll.
+ * <p>
+ * All coordinates are visual ones, i.e. top to bottom or left to right regardless of reverse
+ * layout and layout direction.
+ *
+ * @see ExtGridLayoutManager#setScrollAlignment(ScrollAlignment)
+ */
+public abstract class ScrollAlignment {
+
+    /**
+     * Amount of content beyond item which is unknown, e.g. because it is not laid out.
+     */
+    public static final int UNKNOWN_SPACE = Integer.MAX_VALUE;
+
+    /**
+     * Computes where item should start.
+     *
+     * @param viewportStart start of viewport after padding
+     * @param viewportEnd   end of viewport after padding
+     * @param itemSize      size of item view
+     * @param spaceBefore   amount of content before start of item view or
+     *                      {@link #UNKNOWN_SPACE}
+     * @param spaceAfter    amount of content after end of item view or {@link #UNKNOWN_SPACE}
+     * @return coordinate of item view start
+     */
+    public abstract int computeItemStart(int viewportStart, int viewportEnd, int itemSize,
+            int spaceBefore, int spaceAfter);
+
+    /**
+     * Creates policy which centers item on camera line at fraction of parent size, the way
+     * {@link ExtGridLayoutManager#setOffset(float)} does.
+     *
+     * @param fraction camera offset fraction
+     * @return new policy
+     */
+    @NonNull
+    public static ScrollAlignment fraction(
+            @FloatRange(from = 0.f, to = 1.f) final float fraction) {
+        return new ScrollAlignment() {
+            @Override
+            public int computeItemStart(int viewportStart, int viewportEnd, int itemSize,
+                    int spaceBefore, int spaceAfter) {
+                return (int) ((viewportStart + viewportEnd) * fraction)
+                        - (int) Math.ceil(itemSize * 0.5);
+            }
+        };
+    }
+
+    /**
+     * Creates policy which puts item start on keyline.
+     *
+     * @param keylinePx distance from viewport start to keyline in px
+     * @return new policy
+     */
+    @NonNull
+    public static ScrollAlignment keyline(final int keylinePx) {
+        return new ScrollAlignment() {
+            @Override
+            public int computeItemStart(int viewportStart, int viewportEnd, int itemSize,
+                    int spaceBefore, int spaceAfter) {
+                return viewportStart + keylinePx;
+            }
+        };
+    }
+
+    /**
+     * Creates policy which follows another one unless that would scroll content past its edge,
+     * so that items near start and end of data stay at their natural place. If content is
+     * smaller than viewport, it sticks to viewport start.
+     *
+     * @param alignment policy to clamp
+     * @return new policy
+     */
+    @NonNull
+    public static ScrollAlignment edgeClamped(@NonNull final ScrollAlignment alignment) {
+        return new ScrollAlignment() {
+            @Override
+            public int computeItemStart(int viewportStart, int viewportEnd, int itemSize,
+                    int spaceBefore, int spaceAfter) {
+                long start = alignment.computeItemStart(viewportStart, viewportEnd, itemSize,
+                        spaceBefore, spaceAfter);
+
+                if (spaceAfter != UNKNOWN_SPACE) {
+                    start = Math.max(start, (long) viewportEnd - spaceAfter - itemSize);
+                }
+
+                if (spaceBefore != UNKNOWN_SPACE) {
+                    start = Math.min(start, (long) viewportStart + spaceBefore);
+                }
+
+                return (int) start;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Index of sections of sorted adapter, e.g. letters A to Z or years. Section is a run of
+ * adjacent items starting at some adapter position and lasting until start of next section.
+ * <p>
+ * Section to position mapping is O(1), position to section one is a binary search. When index
+ * is set to {@link DpadAwareRecyclerView#setSectionIndex(SectionIndex)}, section starts follow
+ * range notifications of adapter: inserted items join section they were inserted into, sections
+ * which run out of items are dropped. After
+ * {@link android.support.v7.widget.RecyclerView.Adapter#notifyDataSetChanged()} sections are
+ * kept as is, new index should be set if they changed.
+ *
+ * @see SectionRail
+ */
+public class SectionIndex {
+
+    /**
+     * Callback of section set changes caused by adapter notifications.
+     */
+    interface Callback {
+        void onSectionsChanged();
+    }
+
+    private Object[] mSections;
+    private int[] mStarts;
+    private int mSize;
+
+    @Nullable
+    private Callback mCallback;
+
+    /**
+     * @param sections section objects, e.g. labels
+     * @param starts   adapter positions of first items of sections in ascending order
+     */
+    public SectionIndex(@NonNull Object[] sections, @NonNull int[] starts) {
+        if (sections.length != starts.length) {
+            throw new IllegalArgumentException("Sections and starts must be of the same length");
+        }
+
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] < 0 || i > 0 && starts[i] <= starts[i - 1]) {
+                throw new IllegalArgumentException(
+                        "Section starts must be non-negative and strictly ascending");
+            }
+        }
+
+        mSections = sections.clone();
+        mStarts = starts.clone();
+        mSize = starts.length;
+    }
+
+    public int getSectionCount() {
+        return mSize;
+    }
+
+    /**
+     * @param section section index
+     * @return section object passed to constructor
+     */
+    public Object getSection(int section) {
+        checkSection(section);
+        return mSections[section];
+    }
+
+    /**
+     * @param section section index
+     * @return adapter position of first item of section
+     */
+    public int getPositionForSection(int section) {
+        checkSection(section);
+        return mStarts[section];
+    }
+
+    /**
+     * @param position adapter position
+     * @return index of section item belongs to or -1 if item precedes all sections
+     */
+    public int getSectionForPosition(int position) {
+        int index = Arrays.binarySearch(mStarts, 0, mSize, position);
+        return index >= 0 ? index : ~index - 1;
+    }
+
+    void setCallback(@Nullable Callback callback) {
+        mCallback = callback;
+    }
+
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        // Section starting right at insertion point gets inserted items
+        for (int i = 0; i < mSize; i++) {
+            if (mStarts[i] > positionStart) {
+                mStarts[i] += itemCount;
+            }
+        }
+    }
+
+    /**
+     * @param totalCount number of items in adapter after removal
+     */
+    void onItemRangeRemoved(int positionStart, int itemCount, int totalCount) {
+        for (int i = 0; i < mSize; i++) {
+            if (mStarts[i] >= positionStart + itemCount) {
+                mStarts[i] -= itemCount;
+            } else if (mStarts[i] > positionStart) {
+                mStarts[i] = positionStart;
+            }
+        }
+
+        // Of sections with equal starts only the last one still has items
+        int n = 0;
+        for (int i = 0; i < mSize; i++) {
+            boolean empty = mStarts[i] >= totalCount
+                    || i + 1 < mSize && mStarts[i + 1] == mStarts[i];
+            if (!empty) {
+                mSections[n] = mSections[i];
+                mStarts[n] = mStarts[i];
+                n++;
+            }
+        }
+
+        if (n != mSize) {
+            Arrays.fill(mSections, n, mSize, null);
+            mSize = n;
+
+            if (mCallback != null) {
+                mCallback.onSectionsChanged();
+            }
+        }
+    }
+
+    /**
+     * Moved items leave their section and join section at their new place.
+     */
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount, int totalCount) {
+        onItemRangeRemoved(fromPosition, itemCount, totalCount - itemCount);
+        onItemRangeInserted(toPosition, itemCount);
+    }
+
+    private void checkSection(int section) {
+        if (section < 0 || section >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid section " + section + ", size is "
+                    + mSize);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Links section rail, e.g. vertical A to Z list, to list of sorted items. Item of rail at
+ * adapter position N represents section N of {@link SectionIndex}.
+ * <p>
+ * Selecting section in rail jumps list straight to first item of section with
+ * {@link DpadAwareRecyclerView#setSelection(int)}, which honors camera offset of
+ * {@link ExtGridLayoutManager} in one layout pass. Clicking section moves focus to list.
+ * Rail item of section which list selection belongs to is kept activated, see
+ * {@link View#setActivated(boolean)}, with single binary search per selection change.
+ * <p>
+ * Rail adapter should report {@link SectionIndex#getSectionCount()} items. It is notified with
+ * {@link RecyclerView.Adapter#notifyDataSetChanged()} when sections run out of items.
+ */
+public class SectionRail {
+
+    private final DpadAwareRecyclerView mRail;
+    private final DpadAwareRecyclerView mList;
+    private final SectionIndex mIndex;
+
+    private int mActivatedSection = RecyclerView.NO_POSITION;
+
+    private final DpadAwareRecyclerView.OnItemSelectedListener mRailListener =
+            new DpadAwareRecyclerView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                }
+
+                @Override
+                public void onItemFocused(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                    if (position >= 0 && position < mIndex.getSectionCount()) {
+                        mList.setSelection(mIndex.getPositionForSection(position));
+                        setActivatedSection(position);
+                    }
+                }
+            };
+
+    private final DpadAwareRecyclerView.OnItemClickListener mRailClickListener =
+            new DpadAwareRecyclerView.OnItemClickListener() {
+                @Override
+                public void onItemClick(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                    mList.requestFocus();
+                }
+            };
+
+    private final DpadAwareRecyclerView.OnItemSelectedListener mListListener =
+            new DpadAwareRecyclerView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                }
+
+                @Override
+                public void onItemFocused(DpadAwareRecyclerView parent, View view, int position,
+                        long id) {
+                    setActivatedSection(mIndex.getSectionForPosition(position));
+                }
+            };
+
+    private final RecyclerView.OnChildAttachStateChangeListener mRailChildListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    int section = mRail.getChildAdapterPosition(view);
+                    view.setActivated(section != RecyclerView.NO_POSITION
+                            && section == mActivatedSection);
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    view.setActivated(false);
+                }
+            };
+
+    private final SectionIndex.Callback mIndexCallback = new SectionIndex.Callback() {
+        @Override
+        public void onSectionsChanged() {
+            mActivatedSection = RecyclerView.NO_POSITION;
+
+            RecyclerView.Adapter adapter = mRail.getAdapter();
+            if (adapter != null) {
+                adapter.notifyDataSetChanged();
+            }
+
+            int position = mList.getSelectedItemPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                setActivatedSection(mIndex.getSectionForPosition(position));
+            }
+        }
+    };
+
+    /**
+     * Links rail to list. Index is set to list with
+     * {@link DpadAwareRecyclerView#setSectionIndex(SectionIndex)}.
+     *
+     * @param rail  rail of sections
+     * @param list  list of items
+     * @param index section index of list adapter
+     */
+    public SectionRail(@NonNull DpadAwareRecyclerView rail, @NonNull DpadAwareRecyclerView list,
+            @NonNull SectionIndex index) {
+        mRail = rail;
+        mList = list;
+        mIndex = index;
+
+        mList.setSectionIndex(index);
+        mIndex.setCallback(mIndexCallback);
+        mRail.addOnItemSelectedListener(mRailListener);
+        mRail.addOnItemClickListener(mRailClickListener);
+        mRail.addOnChildAttachStateChangeListener(mRailChildListener);
+        mList.addOnItemSelectedListener(mListListener);
+    }
+
+    /**
+     * Unlinks rail from list.
+     */
+    public void release() {
+        setActivatedSection(RecyclerView.NO_POSITION);
+
+        mIndex.setCallback(null);
+        mRail.removeOnItemSelectedListener(mRailListener);
+        mRail.removeOnItemClickListener(mRailClickListener);
+        mRail.removeOnChildAttachStateChangeListener(mRailChildListener);
+        mList.removeOnItemSelectedListener(mListListener);
+
+        if (mList.getSectionIndex() == mIndex) {
+            mList.setSectionIndex(null);
+        }
+    }
+
+    @NonNull
+    public SectionIndex getSectionIndex() {
+        return mIndex;
+    }
+
+    /**
+     * @return section which is activated in rail or {@link RecyclerView#NO_POSITION}
+     */
+    public int getActivatedSection() {
+        return mActivatedSection;
+    }
+
+    private void setActivatedSection(int section) {
+        if (section < 0) {
+            section = RecyclerView.NO_POSITION;
+        }
+
+        if (section == mActivatedSection) {
+            return;
+        }
+
+        setRailItemActivated(mActivatedSection, false);
+        mActivatedSection = section;
+        setRailItemActivated(section, true);
+
+        // Rail follows list only while user is not navigating rail itself
+        if (section != RecyclerView.NO_POSITION && !mRail.hasFocus()) {
+            mRail.setSelection(section);
+        }
+    }
+
+    private void setRailItemActivated(int section, boolean activated) {
+        if (section == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        RecyclerView.ViewHolder holder = mRail.findViewHolderForAdapterPosition(section);
+        if (holder != null) {
+            holder.itemView.setActivated(activated);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+
+/**
+ * Container which draws one selector for several {@link DpadAwareRecyclerView}s laid out inside
+ * it. When focus moves from one list to another, selector flies across list boundaries from
+ * where it was instead of disappearing in one list and appearing in another. Only this container
+ * is invalidated while selector moves.
+ * <p>
+ * Lists are registered with {@link DpadAwareRecyclerView#setSelectorHost(SelectorHost)} and
+ * must be descendants of the host. Lists are held by host only while they are attached to
+ * window. Selector layers of registered lists are not drawn, layers of
+ * the host are used instead. Layers below children are drawn beneath lists, so lists should not
+ * have opaque backgrounds for them to be seen.
+ */
+public class SelectorHost extends FrameLayout implements
+        ViewTreeObserver.OnGlobalFocusChangeListener {
+
+    /**
+     * Forwards selector events to list which selector currently moves in.
+     */
+    private static final class OwnerListener implements FloatingSelector.Listener {
+
+        @Nullable DpadAwareRecyclerView mOwner;
+        @Nullable FloatingSelector.Listener mListener;
+
+        @Override
+        public void onSelectorMoveStarted() {
+            if (mListener != null) {
+                mListener.onSelectorMoveStarted();
+            }
+        }
+
+        @Override
+        public void onSelectorArrived() {
+            if (mListener != null) {
+                mListener.onSelectorArrived();
+            }
+        }
+
+        @Override
+        public void onSelectorProgress(float progress) {
+            if (mListener != null) {
+                mListener.onSelectorProgress(progress);
+            }
+        }
+    }
+
+    private final FloatingSelector mFloatingSelector = new FloatingSelector(this);
+    private final OwnerListener mOwnerListener = new OwnerListener();
+    private final ArrayList<DpadAwareRecyclerView> mLists = new ArrayList<>();
+
+    private final Rect mSelectorSourceRect = new Rect();
+    private final Rect mSelectorDestRect = new Rect();
+    private int mSelectorVelocity = 0;
+
+    public SelectorHost(@NonNull Context context) {
+        super(context);
+        init();
+    }
+
+    public SelectorHost(@NonNull Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public SelectorHost(@NonNull Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        mFloatingSelector.setListener(mOwnerListener);
+        mFloatingSelector.setVisible(false);
+    }
+
+    /**
+     * Sets selector velocity. Zero or less velocity means that transition will be instant.
+     *
+     * @param velocity velocity in px per second
+     */
+    public void setSelectorVelocity(int velocity) {
+        mSelectorVelocity = velocity;
+    }
+
+    public int getSelectorVelocity() {
+        return mSelectorVelocity;
+    }
+
+    /**
+     * Sets selector motion model.
+     *
+     * @param motion {@link DpadAwareRecyclerView#SELECTOR_MOTION_VELOCITY} or
+     *               {@link DpadAwareRecyclerView#SELECTOR_MOTION_SPRING}
+     */
+    public void setSelectorMotion(@DpadAwareRecyclerView.SelectorMotion int motion) {
+        if (motion != DpadAwareRecyclerView.SELECTOR_MOTION_VELOCITY
+                && motion != DpadAwareRecyclerView.SELECTOR_MOTION_SPRING) {
+            throw new IllegalArgumentException("Unknown selector motion: " + motion);
+        }
+
+        mFloatingSelector.setSpring(motion == DpadAwareRecyclerView.SELECTOR_MOTION_SPRING);
+    }
+
+    @DpadAwareRecyclerView.SelectorMotion
+    public int getSelectorMotion() {
+        return mFloatingSelector.isSpring()
+                ? DpadAwareRecyclerView.SELECTOR_MOTION_SPRING
+                : DpadAwareRecyclerView.SELECTOR_MOTION_VELOCITY;
+    }
+
+    /**
+     * @param stiffness stiffness of selector spring for unit mass, 1/s^2
+     * @see DpadAwareRecyclerView#setSelectorSpringStiffness(float)
+     */
+    public void setSelectorSpringStiffness(float stiffness) {
+        mFloatingSelector.setSpringStiffness(stiffness);
+    }
+
+    public float getSelectorSpringStiffness() {
+        return mFloatingSelector.getSpringStiffness();
+    }
+
+    /**
+     * @param threshold distance in px within which spring selector is considered arrived
+     * @see DpadAwareRecyclerView#setSelectorSettleThreshold(float)
+     */
+    public void setSelectorSettleThreshold(float threshold) {
+        mFloatingSelector.setSettleThreshold(threshold);
+    }
+
+    public float getSelectorSettleThreshold() {
+        return mFloatingSelector.getSettleThreshold();
+    }
+
+    /**
+     * Adds selector layer atop of already added layers of the same z-order.
+     *
+     * @param layer selector layer
+     * @throws IllegalStateException if layer is already added
+     */
+    public void addSelectorLayer(@NonNull SelectorLayer layer) {
+        mFloatingSelector.addLayer(mFloatingSelector.getLayerCount(), layer);
+    }
+
+    /**
+     * Removes selector layer.
+     *
+     * @param layer selector layer
+     * @return true if layer was removed
+     */
+    public boolean removeSelectorLayer(@NonNull SelectorLayer layer) {
+        return mFloatingSelector.removeLayer(layer);
+    }
+
+    /**
+     * @return number of selector layers
+     */
+    public int getSelectorLayerCount() {
+        return mFloatingSelector.getLayerCount();
+    }
+
+    /**
+     * Gets selector layer by its index in drawing order.
+     *
+     * @param index index of layer
+     * @return selector layer
+     */
+    @NonNull
+    public SelectorLayer getSelectorLayer(int index) {
+        if (index < 0 || index >= mFloatingSelector.getLayerCount()) {
+            throw new IndexOutOfBoundsException("Passed index is not in valid range which is"
+                    + " [0; " + mFloatingSelector.getLayerCount() + ").");
+        }
+
+        return mFloatingSelector.getLayer(index);
+    }
+
+    void registerList(@NonNull DpadAwareRecyclerView list) {
+        if (!mLists.contains(list)) {
+            mLists.add(list);
+        }
+
+        enforceSelectorVisibility();
+    }
+
+    void unregisterList(@NonNull DpadAwareRecyclerView list) {
+        mLists.remove(list);
+
+        if (mOwnerListener.mOwner == list) {
+            mOwnerListener.mOwner = null;
+            mOwnerListener.mListener = null;
+        }
+
+        enforceSelectorVisibility();
+    }
+
+    /**
+     * Starts moving selector to item of registered list.
+     *
+     * @param list     list which item is selected
+     * @param rect     item bounds in list coordinates
+     * @param listener listener of this move
+     * @throws IllegalArgumentException if list is not descendant of this host
+     */
+    void moveSelector(@NonNull DpadAwareRecyclerView list, @NonNull Rect rect,
+            @NonNull FloatingSelector.Listener listener) {
+        mSelectorDestRect.set(rect);
+        offsetDescendantRectToMyCoords(list, mSelectorDestRect);
+
+        // Previous owner won't hear of this flight anymore, so it is done with its own one
+        FloatingSelector.Listener previous = mOwnerListener.mListener;
+        if (previous != null && previous != listener && mFloatingSelector.isMoving()) {
+            mOwnerListener.mListener = null;
+            previous.onSelectorProgress(1f);
+            previous.onSelectorArrived();
+        }
+
+        mOwnerListener.mOwner = list;
+        mOwnerListener.mListener = listener;
+
+        int duration = 0;
+        if (mSelectorVelocity > 0) {
+            mFloatingSelector.getCurrentRect(mSelectorSourceRect);
+            int dx = mSelectorDestRect.centerX() - mSelectorSourceRect.centerX();
+            int dy = mSelectorDestRect.centerY() - mSelectorSourceRect.centerY();
+            duration = (int) (Math.sqrt(dx * dx + dy * dy) / mSelectorVelocity * 1000);
+        }
+
+        mFloatingSelector.moveTo(mSelectorDestRect, duration);
+    }
+
+    /**
+     * @param list registered list
+     * @return true if selector is moving to item of given list
+     */
+    boolean isSelectorMoving(@NonNull DpadAwareRecyclerView list) {
+        return mOwnerListener.mOwner == list && mFloatingSelector.isMoving();
+    }
+
+    float getSelectorProgress() {
+        return mFloatingSelector.getProgress();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        getViewTreeObserver().addOnGlobalFocusChangeListener(this);
+        enforceSelectorVisibility();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        getViewTreeObserver().removeOnGlobalFocusChangeListener(this);
+        mFloatingSelector.cancel();
+    }
+
+    @Override
+    public void onGlobalFocusChanged(View oldFocus, View newFocus) {
+        enforceSelectorVisibility();
+    }
+
+    @Override
+    protected void dispatchDraw(@NonNull Canvas canvas) {
+        mFloatingSelector.draw(canvas, SelectorLayer.Z_BELOW_CHILDREN);
+
+        super.dispatchDraw(canvas);
+
+        mFloatingSelector.draw(canvas, SelectorLayer.Z_ABOVE_CHILDREN);
+    }
+
+    private void enforceSelectorVisibility() {
+        boolean visible = false;
+        if (!isInTouchMode()) {
+            for (int i = 0; i < mLists.size() && !visible; i++) {
+                visible = mLists.get(i).hasFocus();
+            }
+        }
+
+        mFloatingSelector.setVisible(visible);
+        invalidate();
+    }
+}
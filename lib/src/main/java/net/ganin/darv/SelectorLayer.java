@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.animation.Interpolator;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * One drawable of floating selector. All layers of a view follow the selected item together,
+ * but each one can be inset differently, interpolate its flight differently and be drawn either
+ * behind or atop of children.
+ * <p>
+ * Changes of insets and interpolator take effect on next selector move.
+ *
+ * @see DpadAwareRecyclerView#addSelectorLayer(SelectorLayer)
+ */
+public class SelectorLayer {
+
+    /**
+     * Z-order of layer relative to children.
+     */
+    @IntDef({ Z_BELOW_CHILDREN, Z_ABOVE_CHILDREN })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ZOrder {}
+
+    /**
+     * Layer is drawn behind children.
+     */
+    public static final int Z_BELOW_CHILDREN = 0;
+
+    /**
+     * Layer is drawn atop of children.
+     */
+    public static final int Z_ABOVE_CHILDREN = 1;
+
+    private final Drawable mDrawable;
+    @ZOrder
+    private final int mZOrder;
+    private final Rect mInsets = new Rect();
+    @Nullable
+    private Interpolator mInterpolator;
+
+    /**
+     * @param drawable layer drawable
+     * @param zOrder   {@link #Z_BELOW_CHILDREN} or {@link #Z_ABOVE_CHILDREN}
+     */
+    public SelectorLayer(@NonNull Drawable drawable, @ZOrder int zOrder) {
+        if (zOrder != Z_BELOW_CHILDREN && zOrder != Z_ABOVE_CHILDREN) {
+            throw new IllegalArgumentException("Unknown z-order: " + zOrder);
+        }
+
+        mDrawable = drawable;
+        mZOrder = zOrder;
+    }
+
+    @NonNull
+    public Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    @ZOrder
+    public int getZOrder() {
+        return mZOrder;
+    }
+
+    /**
+     * Sets insets of layer relative to bounds of selected item. Positive values shrink layer,
+     * negative ones grow it beyond item, e.g. for glow or shadow.
+     *
+     * @param left   left inset in px
+     * @param top    top inset in px
+     * @param right  right inset in px
+     * @param bottom bottom inset in px
+     */
+    public void setInsets(int left, int top, int right, int bottom) {
+        mInsets.set(left, top, right, bottom);
+    }
+
+    /**
+     * Gets insets of layer.
+     *
+     * @param outInsets rect to receive insets
+     */
+    public void getInsets(@NonNull Rect outInsets) {
+        outInsets.set(mInsets);
+    }
+
+    /**
+     * Sets interpolator of layer flight. Null means linear flight.
+     *
+     * @param interpolator flight interpolator
+     */
+    public void setInterpolator(@Nullable Interpolator interpolator) {
+        mInterpolator = interpolator;
+    }
+
+    @Nullable
+    public Interpolator getInterpolator() {
+        return mInterpolator;
+    }
+
+    /**
+     * Interpolates flight fraction for this layer.
+     */
+    float interpolate(float fraction) {
+        return mInterpolator != null ? mInterpolator.getInterpolation(fraction) : fraction;
+    }
+
+    /**
+     * Applies insets of this layer to selector bounds.
+     */
+    void applyInsets(@NonNull Rect bounds) {
+        bounds.left += mInsets.left;
+        bounds.top += mInsets.top;
+        bounds.right -= mInsets.right;
+        bounds.bottom -= mInsets.bottom;
+    }
+}
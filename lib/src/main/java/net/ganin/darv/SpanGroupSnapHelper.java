@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SnapHelper;
+import android.view.View;
+
+/**
+ * Snap helper for {@link ExtGridLayoutManager} which settles flings and scrolls with whole span
+ * group at the place where navigation puts selected item, see
+ * {@link ExtGridLayoutManager#computeSnapDistance(View)}. Settle target is computed before
+ * animation starts, so there is no correcting scroll afterwards. While attached, it also makes
+ * {@link ExtGridLayoutManager#smoothScrollToPosition} settle target at that place.
+ * <p>
+ * Does nothing for other layout managers.
+ */
+public class SpanGroupSnapHelper extends SnapHelper {
+
+    @Nullable
+    @Override
+    public int[] calculateDistanceToFinalSnap(@NonNull RecyclerView.LayoutManager lm,
+            @NonNull View targetView) {
+        int[] distance = new int[2];
+        if (!(lm instanceof ExtGridLayoutManager)) {
+            return distance;
+        }
+
+        ExtGridLayoutManager glm = (ExtGridLayoutManager) lm;
+        int snapDistance = glm.computeSnapDistance(targetView);
+
+        if (glm.getOrientation() == ExtGridLayoutManager.VERTICAL) {
+            distance[1] = snapDistance;
+        } else {
+            distance[0] = snapDistance;
+        }
+
+        return distance;
+    }
+
+    @Nullable
+    @Override
+    public View findSnapView(RecyclerView.LayoutManager lm) {
+        if (!(lm instanceof ExtGridLayoutManager)) {
+            return null;
+        }
+
+        ExtGridLayoutManager glm = (ExtGridLayoutManager) lm;
+        View snapView = null;
+        int minDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < glm.getChildCount(); i++) {
+            View child = glm.getChildAt(i);
+            int distance = Math.abs(glm.computeSnapDistance(child));
+            if (distance < minDistance) {
+                minDistance = distance;
+                snapView = child;
+            }
+        }
+
+        return snapView;
+    }
+
+    @Override
+    public int findTargetSnapPosition(RecyclerView.LayoutManager lm, int velocityX,
+            int velocityY) {
+        if (!(lm instanceof ExtGridLayoutManager)) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        ExtGridLayoutManager glm = (ExtGridLayoutManager) lm;
+        View snapView = findSnapView(glm);
+        if (snapView == null) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        boolean vertical = glm.getOrientation() == ExtGridLayoutManager.VERTICAL;
+        int[] flingDistance = calculateScrollDistance(velocityX, velocityY);
+        int distance = vertical ? flingDistance[1] : flingDistance[0];
+
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) snapView.getLayoutParams();
+        int pitch = vertical
+                ? glm.getDecoratedMeasuredHeight(snapView) + lp.topMargin + lp.bottomMargin
+                : glm.getDecoratedMeasuredWidth(snapView) + lp.leftMargin + lp.rightMargin;
+        if (pitch <= 0) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        int groups = Math.round((float) Math.abs(distance) / pitch);
+        int position = glm.getPosition(snapView);
+        if (groups == 0) {
+            return position;
+        }
+
+        // Adapter order runs the other way in reversed layouts
+        boolean towardsEnd = distance > 0;
+        boolean rtl = !vertical && glm.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+        boolean forward = towardsEnd != (glm.getReverseLayout() != rtl);
+
+        return glm.findPageJumpTarget(position, forward, groups);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative integers stored as 64-bit words. Only words with at least one set bit
+ * are kept, sorted by word index, so memory depends on number and spread of set bits rather
+ * than on the biggest one.
+ * <p>
+ * Range operations mirror adapter notifications: they shift bits which follow the range. Shifts
+ * move whole words, carrying bits between adjacent words, so their cost depends on number of
+ * stored words after the range rather than on number of set bits.
+ */
+final class SparseBitSet {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+
+    private int[] mKeys = new int[4];
+    private long[] mWords = new long[4];
+    private int mSize = 0;
+    private int mCardinality = 0;
+
+    /* Reused storage for words being shifted */
+    private int[] mScratchKeys = new int[0];
+    private long[] mScratchWords = new long[0];
+
+    boolean get(int bit) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, bit >>> WORD_SHIFT);
+        return index >= 0 && (mWords[index] & (1L << (bit & WORD_MASK))) != 0;
+    }
+
+    void set(int bit, boolean value) {
+        if (bit < 0) {
+            throw new IndexOutOfBoundsException("Bit index must not be negative: " + bit);
+        }
+
+        int key = bit >>> WORD_SHIFT;
+        long mask = 1L << (bit & WORD_MASK);
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+
+        if (value) {
+            if (index < 0) {
+                index = ~index;
+                insertWord(index, key);
+            }
+
+            if ((mWords[index] & mask) == 0) {
+                mWords[index] |= mask;
+                mCardinality++;
+            }
+        } else if (index >= 0 && (mWords[index] & mask) != 0) {
+            mWords[index] &= ~mask;
+            mCardinality--;
+
+            if (mWords[index] == 0) {
+                removeWords(index, index + 1);
+            }
+        }
+    }
+
+    /**
+     * @return number of set bits
+     */
+    int cardinality() {
+        return mCardinality;
+    }
+
+    void clear() {
+        mSize = 0;
+        mCardinality = 0;
+    }
+
+    /**
+     * Finds first set bit which is equal to or greater than passed one.
+     *
+     * @param from bit to start from
+     * @return set bit or -1 if there is none
+     */
+    int nextSetBit(int from) {
+        int key = from >>> WORD_SHIFT;
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+
+        if (index >= 0) {
+            long word = mWords[index] & (-1L << (from & WORD_MASK));
+            if (word != 0) {
+                return (key << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+            }
+
+            index++;
+        } else {
+            index = ~index;
+        }
+
+        if (index < mSize) {
+            return (mKeys[index] << WORD_SHIFT) + Long.numberOfTrailingZeros(mWords[index]);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Shifts bits starting from passed one up, as if bits were inserted.
+     *
+     * @param start first inserted bit
+     * @param count number of inserted bits
+     */
+    void insertRange(int start, int count) {
+        if (count > 0) {
+            shiftFrom(start, count);
+        }
+    }
+
+    /**
+     * Drops bits in range and shifts following bits down.
+     *
+     * @param start first removed bit
+     * @param count number of removed bits
+     */
+    void removeRange(int start, int count) {
+        if (count > 0) {
+            clearRange(start, start + count);
+            shiftFrom(start + count, -count);
+        }
+    }
+
+    /**
+     * Moves bits in range to another place, shifting bits in between.
+     *
+     * @param from  first moved bit
+     * @param to    new position of first moved bit
+     * @param count number of moved bits
+     */
+    void moveRange(int from, int to, int count) {
+        // Only bits between source and destination are affected
+        int[] moved = extractRange(Math.min(from, to), Math.max(from, to) + count);
+        for (int bit : moved) {
+            set(mapMoved(bit, from, to, count), true);
+        }
+    }
+
+    /**
+     * Maps position through move of range in terms of
+     * {@link android.support.v7.widget.RecyclerView.AdapterDataObserver#onItemRangeMoved}.
+     */
+    static int mapMoved(int position, int from, int to, int count) {
+        if (position >= from && position < from + count) {
+            return position - from + to;
+        } else if (from < to && position >= from + count && position < to + count) {
+            return position - count;
+        } else if (to < from && position >= to && position < from) {
+            return position + count;
+        }
+
+        return position;
+    }
+
+    /**
+     * Clears all bits starting from passed one.
+     *
+     * @param from first bit to clear
+     */
+    void clearFrom(int from) {
+        clearRange(from, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Clears bits in range.
+     *
+     * @param start first bit to clear
+     * @param end   bit after the last one to clear
+     */
+    private void clearRange(int start, int end) {
+        int index = lowerBound(start >>> WORD_SHIFT);
+        int lastKey = (end - 1) >>> WORD_SHIFT;
+        int write = index;
+        int i = index;
+
+        for (; i < mSize && mKeys[i] <= lastKey; i++) {
+            long mask = rangeMask(mKeys[i], start, end);
+            mCardinality -= Long.bitCount(mWords[i] & mask);
+
+            long word = mWords[i] & ~mask;
+            if (word != 0) {
+                mKeys[write] = mKeys[i];
+                mWords[write++] = word;
+            }
+        }
+
+        removeWords(write, i);
+    }
+
+    /**
+     * Clears bits in range.
+     *
+     * @param start first bit to clear
+     * @param end   bit after the last one to clear
+     * @return cleared bits in ascending order
+     */
+    private int[] extractRange(int start, int end) {
+        int index = lowerBound(start >>> WORD_SHIFT);
+        int lastKey = (end - 1) >>> WORD_SHIFT;
+
+        int count = 0;
+        for (int i = index; i < mSize && mKeys[i] <= lastKey; i++) {
+            count += Long.bitCount(mWords[i] & rangeMask(mKeys[i], start, end));
+        }
+
+        int[] bits = new int[count];
+        int n = 0;
+        for (int i = index; i < mSize && mKeys[i] <= lastKey; i++) {
+            long word = mWords[i] & rangeMask(mKeys[i], start, end);
+            while (word != 0) {
+                bits[n++] = (mKeys[i] << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+
+        clearRange(start, end);
+        return bits;
+    }
+
+    /**
+     * Moves all bits starting from passed one by delta. Bits between target of the first moved
+     * bit and the first moved bit itself must be clear.
+     *
+     * @param from  first moved bit
+     * @param delta distance to move by, negative to move down
+     */
+    private void shiftFrom(int from, int delta) {
+        int fromKey = from >>> WORD_SHIFT;
+        int index = lowerBound((delta < 0 ? from + delta : from) >>> WORD_SHIFT);
+        int keyDelta = delta >> WORD_SHIFT;
+        int bitDelta = delta & WORD_MASK;
+
+        // Each word may be split in two, and words before the moved ones stay
+        int capacity = 2 * (mSize - index) + 2;
+        if (mScratchKeys.length < capacity) {
+            mScratchKeys = new int[capacity];
+            mScratchWords = new long[capacity];
+        }
+
+        // Staying bits are all below targets of moved ones, so keys come out sorted
+        int n = 0;
+        for (int i = index; i < mSize && mKeys[i] <= fromKey; i++) {
+            long stay = mKeys[i] < fromKey ? mWords[i] : mWords[i] & ~(-1L << (from & WORD_MASK));
+            n = appendScratch(n, mKeys[i], stay);
+        }
+
+        for (int i = index; i < mSize; i++) {
+            if (mKeys[i] < fromKey) {
+                continue;
+            }
+
+            long word = mKeys[i] == fromKey ? mWords[i] & (-1L << (from & WORD_MASK)) : mWords[i];
+            int key = mKeys[i] + keyDelta;
+            n = appendScratch(n, key, word << bitDelta);
+            if (bitDelta != 0) {
+                n = appendScratch(n, key + 1, word >>> (Long.SIZE - bitDelta));
+            }
+        }
+
+        ensureCapacity(index + n);
+        System.arraycopy(mScratchKeys, 0, mKeys, index, n);
+        System.arraycopy(mScratchWords, 0, mWords, index, n);
+        mSize = index + n;
+    }
+
+    private int appendScratch(int n, int key, long word) {
+        if (word == 0) {
+            return n;
+        }
+
+        if (n > 0 && mScratchKeys[n - 1] == key) {
+            mScratchWords[n - 1] |= word;
+            return n;
+        }
+
+        mScratchKeys[n] = key;
+        mScratchWords[n] = word;
+        return n + 1;
+    }
+
+    /**
+     * @return mask of bits of word with given key which fall into range
+     */
+    private static long rangeMask(int key, int start, int end) {
+        long base = (long) key << WORD_SHIFT;
+        long low = Math.max(start - base, 0);
+        long high = Math.min(end - base, Long.SIZE);
+
+        long mask = -1L << low;
+        if (high < Long.SIZE) {
+            mask &= (1L << high) - 1;
+        }
+
+        return mask;
+    }
+
+    private int lowerBound(int key) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        return index < 0 ? ~index : index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (mKeys.length < capacity) {
+            capacity = Math.max(capacity, mKeys.length * 2);
+            mKeys = Arrays.copyOf(mKeys, capacity);
+            mWords = Arrays.copyOf(mWords, capacity);
+        }
+    }
+
+    private void insertWord(int index, int key) {
+        ensureCapacity(mSize + 1);
+
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mWords, index, mWords, index + 1, mSize - index);
+        mKeys[index] = key;
+        mWords[index] = 0;
+        mSize++;
+    }
+
+    private void removeWords(int start, int end) {
+        System.arraycopy(mKeys, end, mKeys, start, mSize - end);
+        System.arraycopy(mWords, end, mWords, start, mSize - end);
+        mSize -= end - start;
+    }
+}
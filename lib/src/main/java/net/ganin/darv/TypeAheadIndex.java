@@ -0,0 +1,338 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Sorted prefix index of type-ahead keys of adapter items.
+ * <p>
+ * Keys are extracted and sorted on background executor. Removals and moves are applied on main
+ * thread right away by shifting positions. Inserted and changed ranges are extracted in
+ * background and merged into index. Every structural change increments generation, and results
+ * extracted for older generation are replaced with full rebuild since their positions may be
+ * wrong. All methods must be called on main thread.
+ */
+class TypeAheadIndex {
+
+    /**
+     * Changed ranges bigger than this part of adapter are re-extracted by full rebuild.
+     */
+    private static final int PARTIAL_UPDATE_MAX_FRACTION = 2;
+
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+            int result = lhs.mKey.compareTo(rhs.mKey);
+            return result != 0 ? result : lhs.mPosition - rhs.mPosition;
+        }
+    };
+
+    private static final class Entry {
+
+        final String mKey;
+        final int mPosition;
+
+        Entry(String key, int position) {
+            mKey = key;
+            mPosition = position;
+        }
+    }
+
+    /**
+     * Extracts and sorts keys of adapter range in background.
+     */
+    private final class ExtractTask implements Runnable {
+
+        final int mGeneration;
+        final int mStart;
+        final int mCount;
+        final boolean mRebuild;
+
+        ExtractTask(int generation, int start, int count, boolean rebuild) {
+            mGeneration = generation;
+            mStart = start;
+            mCount = count;
+            mRebuild = rebuild;
+        }
+
+        @Override
+        public void run() {
+            final Entry[] entries = extract(mStart, mCount);
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onExtracted(ExtractTask.this, entries);
+                }
+            });
+        }
+    }
+
+    private final DpadAwareRecyclerView.TypeAheadKeyProvider mProvider;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    /* Keys sorted in ascending order along with their positions. */
+    private String[] mKeys = new String[0];
+    private int[] mPositions = new int[0];
+    private int mSize = 0;
+
+    private int mGeneration = 0;
+    private int mItemCount = 0;
+    @Nullable
+    private ExtractTask mPendingRebuild;
+    private boolean mReleased = false;
+
+    TypeAheadIndex(@NonNull DpadAwareRecyclerView.TypeAheadKeyProvider provider) {
+        mProvider = provider;
+    }
+
+    void setExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Drops index and all pending extractions. Index can't be used afterwards.
+     */
+    void release() {
+        mReleased = true;
+        mGeneration++;
+        mSize = 0;
+    }
+
+    /**
+     * Rebuilds whole index in background. Current index keeps serving lookups meanwhile.
+     *
+     * @param itemCount number of items in adapter
+     */
+    void rebuild(int itemCount) {
+        mItemCount = itemCount;
+        mGeneration++;
+        requestRebuild();
+    }
+
+    /**
+     * Finds best match for typed prefix: item with smallest key starting with prefix, lowest
+     * position if there are several ones. Case is ignored.
+     *
+     * @param prefix typed prefix
+     * @return adapter position or {@link RecyclerView#NO_POSITION} if nothing matches
+     */
+    int find(@NonNull String prefix) {
+        String normalized = normalize(prefix);
+        int index = lowerBound(normalized);
+
+        if (index >= mSize || !mKeys[index].startsWith(normalized)) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        // Positions of equal keys could have been shuffled by moves
+        int position = mPositions[index];
+        for (int i = index + 1; i < mSize && mKeys[i].equals(mKeys[index]); i++) {
+            position = Math.min(position, mPositions[i]);
+        }
+
+        return position;
+    }
+
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        mItemCount += itemCount;
+
+        for (int i = 0; i < mSize; i++) {
+            if (mPositions[i] >= positionStart) {
+                mPositions[i] += itemCount;
+            }
+        }
+
+        mGeneration++;
+        extractRange(positionStart, itemCount);
+    }
+
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        mItemCount -= itemCount;
+
+        int n = 0;
+        for (int i = 0; i < mSize; i++) {
+            int pos = mPositions[i];
+            if (pos < positionStart || pos >= positionStart + itemCount) {
+                mKeys[n] = mKeys[i];
+                mPositions[n] = pos >= positionStart ? pos - itemCount : pos;
+                n++;
+            }
+        }
+
+        Arrays.fill(mKeys, n, mSize, null);
+        mSize = n;
+        mGeneration++;
+    }
+
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        for (int i = 0; i < mSize; i++) {
+            mPositions[i] = SparseBitSet.mapMoved(mPositions[i], fromPosition, toPosition,
+                    itemCount);
+        }
+
+        mGeneration++;
+    }
+
+    void onItemRangeChanged(int positionStart, int itemCount) {
+        int n = 0;
+        for (int i = 0; i < mSize; i++) {
+            int pos = mPositions[i];
+            if (pos < positionStart || pos >= positionStart + itemCount) {
+                mKeys[n] = mKeys[i];
+                mPositions[n] = pos;
+                n++;
+            }
+        }
+
+        Arrays.fill(mKeys, n, mSize, null);
+        mSize = n;
+        mGeneration++;
+        extractRange(positionStart, itemCount);
+    }
+
+    private void extractRange(int positionStart, int itemCount) {
+        if (mPendingRebuild != null
+                || itemCount > mItemCount / PARTIAL_UPDATE_MAX_FRACTION) {
+            // Pending rebuild will see generation change and start over
+            requestRebuild();
+            return;
+        }
+
+        mExecutor.execute(new ExtractTask(mGeneration, positionStart, itemCount, false));
+    }
+
+    private void requestRebuild() {
+        if (mReleased || mPendingRebuild != null && mPendingRebuild.mGeneration == mGeneration) {
+            return;
+        }
+
+        mPendingRebuild = new ExtractTask(mGeneration, 0, mItemCount, true);
+        mExecutor.execute(mPendingRebuild);
+    }
+
+    /**
+     * Runs on background thread.
+     */
+    private Entry[] extract(int start, int count) {
+        Entry[] entries = new Entry[count];
+        int n = 0;
+
+        for (int pos = start; pos < start + count; pos++) {
+            String key = mProvider.getTypeAheadKey(pos);
+            if (key != null && key.length() > 0) {
+                entries[n++] = new Entry(normalize(key), pos);
+            }
+        }
+
+        Arrays.sort(entries, 0, n, ENTRY_ORDER);
+        return n == count ? entries : Arrays.copyOf(entries, n);
+    }
+
+    private void onExtracted(ExtractTask task, Entry[] entries) {
+        if (mReleased) {
+            return;
+        }
+
+        if (task.mRebuild) {
+            if (task != mPendingRebuild) {
+                return;
+            }
+
+            mPendingRebuild = null;
+        }
+
+        if (task.mGeneration != mGeneration) {
+            // Positions were extracted before some structural change
+            requestRebuild();
+            return;
+        }
+
+        if (task.mRebuild) {
+            mKeys = new String[entries.length];
+            mPositions = new int[entries.length];
+            mSize = 0;
+        }
+
+        merge(entries);
+    }
+
+    /**
+     * Merges sorted entries into index.
+     */
+    private void merge(Entry[] entries) {
+        int size = mSize + entries.length;
+        String[] keys = mKeys.length >= size ? mKeys : new String[size];
+        int[] positions = mPositions.length >= size ? mPositions : new int[size];
+
+        // Merge from the end, so that index can be merged in place
+        int i = mSize - 1;
+        int j = entries.length - 1;
+        for (int k = size - 1; k >= 0; k--) {
+            if (j < 0 || i >= 0 && compare(i, entries[j]) > 0) {
+                keys[k] = mKeys[i];
+                positions[k] = mPositions[i];
+                i--;
+            } else {
+                keys[k] = entries[j].mKey;
+                positions[k] = entries[j].mPosition;
+                j--;
+            }
+        }
+
+        mKeys = keys;
+        mPositions = positions;
+        mSize = size;
+    }
+
+    private int compare(int index, Entry entry) {
+        int result = mKeys[index].compareTo(entry.mKey);
+        return result != 0 ? result : mPositions[index] - entry.mPosition;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = mSize;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mKeys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.getDefault());
+    }
+}
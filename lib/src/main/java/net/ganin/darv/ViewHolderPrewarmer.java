@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 Vsevolod Ganin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ganin.darv;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Helper class that inflates view holders on background thread and puts them into
+ * {@link RecyclerView.RecycledViewPool} of some RecyclerView, so its first layout doesn't have
+ * to inflate them.
+ */
+class ViewHolderPrewarmer {
+
+    private static final String TAG = "ViewHolderPrewarmer";
+
+    /**
+     * Number of span groups to inflate when item size can't be determined before inflation.
+     */
+    private static final int FALLBACK_SPAN_GROUPS = 3;
+
+    private final RecyclerView mRecyclerView;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    /**
+     * Incremented on cancellation. Holders inflated for older generation are dropped.
+     */
+    private volatile int mGeneration = 0;
+
+    /* Caps raised in default pool of list by view type, default pool caps are not stored */
+    private final SparseIntArray mRaisedCaps = new SparseIntArray();
+    private RecyclerView.RecycledViewPool mRaisedCapsPool;
+
+    ViewHolderPrewarmer(@NonNull RecyclerView rv) {
+        mRecyclerView = rv;
+    }
+
+    void setExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Drop all holders which are still being inflated.
+     */
+    void cancel() {
+        mGeneration++;
+    }
+
+    /**
+     * Inflate view holders of given type in background.
+     *
+     * @param viewType view type
+     * @param count    number of holders, 0 or less to derive it from span count and viewport size
+     */
+    void prewarm(final int viewType, final int count) {
+        final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        RecyclerView.LayoutManager lm = mRecyclerView.getLayoutManager();
+        if (adapter == null || lm == null) {
+            throw new IllegalStateException("Adapter and layout manager must be set to prewarm"
+                    + " view holders");
+        }
+
+        final int generation = mGeneration;
+        final boolean vertical = lm.canScrollVertically();
+        final int spanCount = estimateSpanCount(lm, getViewportSize(!vertical));
+        final int viewportSize = getViewportSize(vertical);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                RecyclerView.ViewHolder holder = inflate(adapter, viewType, generation);
+                if (holder == null) {
+                    return;
+                }
+
+                int total = count > 0
+                        ? count
+                        : deriveCount(holder, vertical, spanCount, viewportSize);
+                deliver(adapter, holder, total, generation);
+
+                for (int i = 1; i < total; i++) {
+                    holder = inflate(adapter, viewType, generation);
+                    if (holder == null) {
+                        return;
+                    }
+
+                    deliver(adapter, holder, total, generation);
+                }
+            }
+        });
+    }
+
+    /**
+     * Inflate one view holder. Called on background thread.
+     *
+     * @return view holder or null if prewarming was cancelled or failed
+     */
+    private RecyclerView.ViewHolder inflate(RecyclerView.Adapter adapter, int viewType,
+            int generation) {
+        if (generation != mGeneration) {
+            return null;
+        }
+
+        try {
+            return adapter.createViewHolder(mRecyclerView, viewType);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to prewarm view holder of type " + viewType, e);
+            return null;
+        }
+    }
+
+    private void deliver(final RecyclerView.Adapter adapter, final RecyclerView.ViewHolder holder,
+            final int total, final int generation) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration || mRecyclerView.getAdapter() != adapter) {
+                    return;
+                }
+
+                RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+                raiseCap(pool, holder.getItemViewType(), total);
+                pool.putRecycledView(holder);
+            }
+        });
+    }
+
+    /**
+     * Makes room for prewarmed holders in default pool of list. Caps are only raised, never
+     * lowered. Adaptive pools are sized by layout manager and pools set by app may be shared, so
+     * their caps are left alone.
+     */
+    private void raiseCap(RecyclerView.RecycledViewPool pool, int viewType, int total) {
+        if (pool instanceof AdaptiveRecycledViewPool
+                || !(mRecyclerView instanceof DpadAwareRecyclerView)
+                || ((DpadAwareRecyclerView) mRecyclerView).isRecycledViewPoolSet()) {
+            return;
+        }
+
+        if (pool != mRaisedCapsPool) {
+            mRaisedCaps.clear();
+            mRaisedCapsPool = pool;
+        }
+
+        int cap = mRaisedCaps.get(viewType, AdaptiveRecycledViewPool.DEFAULT_MAX_SCRAP);
+        if (cap < total) {
+            pool.setMaxRecycledViews(viewType, total);
+            mRaisedCaps.put(viewType, total);
+        }
+    }
+
+    private static int deriveCount(RecyclerView.ViewHolder holder, boolean vertical,
+            int spanCount, int viewportSize) {
+        ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
+        int itemSize = lp == null ? 0 : (vertical ? lp.height : lp.width);
+
+        int groups = itemSize > 0
+                ? (viewportSize + itemSize - 1) / itemSize + 1
+                : FALLBACK_SPAN_GROUPS;
+
+        return spanCount * groups;
+    }
+
+    private static int estimateSpanCount(RecyclerView.LayoutManager lm, int crossSize) {
+        if (lm instanceof ExtGridLayoutManager) {
+            ExtGridLayoutManager eglm = (ExtGridLayoutManager) lm;
+            int spanSize = eglm.getSpanSizePx();
+
+            if (eglm.isAutoFitPending() && spanSize > 0) {
+                return Math.max(1, crossSize / spanSize);
+            }
+        }
+
+        return GridGeometry.getSpanCount(lm);
+    }
+
+    private int getViewportSize(boolean vertical) {
+        int size = vertical ? mRecyclerView.getHeight() : mRecyclerView.getWidth();
+
+        if (size <= 0) {
+            // Not laid out yet. Screen size is the upper bound.
+            DisplayMetrics dm = mRecyclerView.getResources().getDisplayMetrics();
+            size = vertical ? dm.heightPixels : dm.widthPixels;
+        }
+
+        return size;
+    }
+}